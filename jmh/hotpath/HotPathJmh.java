@@ -0,0 +1,67 @@
+package hotpath;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// The HotPathBenchmark cases under JMH, one fork per case: gradle jmh
+//
+// JMH refuses benchmarks in the default package and a class in a package can't name the game's
+// classes, so the cases are looked up by reflection once in setup; the timed call is a plain
+// LongSupplier. A call runs a batch (all positions, or one whole search), the operations counter
+// reports the same operations per second HotPathBenchmark turns into ns/op.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 10, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+@Fork(1)
+public class HotPathJmh {
+
+    @Param({"movegen.movesFrom", "movegen.sideToMove", "win.detection", "save.write", "save.read", "search.node",
+            "variant.8x8:4.long.movegen", "variant.8x8:4.long.search.node",
+            "variant.8x8:4.multiword.movegen", "variant.8x8:4.multiword.search.node",
+            "variant.10x10:5.long.movegen", "variant.10x10:5.long.search.node",
+            "variant.10x10:5.multiword.movegen", "variant.10x10:5.multiword.search.node",
+            "variant.12x12:6.multiword.movegen", "variant.12x12:6.multiword.search.node"})
+    public String name;
+
+    private LongSupplier benchmark;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Operations {
+        public long operations;
+    }
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setUp() throws ReflectiveOperationException {
+        Map<String, LongSupplier> cases = (Map<String, LongSupplier>) Class.forName("HotPathBenchmark")
+                .getMethod("createCases").invoke(null);
+        benchmark = cases.get(name);
+        if (benchmark == null) {
+            throw new IllegalArgumentException("HotPathBenchmark has no case " + name);
+        }
+    }
+
+    @Benchmark
+    public long run(Operations operations) {
+        long count = benchmark.getAsLong();
+        operations.operations += count;
+        return count;
+    }
+}
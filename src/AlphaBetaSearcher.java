@@ -0,0 +1,263 @@
+// Iterative deepening alpha-beta over any SearchPosition: the 8x8 BitboardPosition and the
+// BoardVariant positions share this search, its table and move ordering; the evaluation and the
+// Zobrist keys come from the position.
+public class AlphaBetaSearcher {
+
+    public static final int WIN_SCORE = 30000;
+    public static final int MAX_DEPTH = 100;
+    // scores above this are forced wins found by the search, not evaluations
+    public static final int WIN_THRESHOLD = WIN_SCORE - 1000;
+    public static final int DEFAULT_TABLE_BITS = 20;
+    private static final int INFINITY = WIN_SCORE + 1;
+    private static final int TIME_CHECK_INTERVAL = 1024;
+
+    private TranspositionTable table;
+    private SearchPosition position;
+    private int[][] moveBuffers;
+    private int[] historyScores;
+    private int squareCount;
+    private long nodes;
+    private long deadline;
+    private boolean stopped;
+    private volatile boolean stopRequested;
+    private int bestMove;
+    private int bestScore;
+    private int completedDepth;
+
+    public AlphaBetaSearcher() {
+        this(DEFAULT_TABLE_BITS);
+    }
+
+    public AlphaBetaSearcher(int tableBits) {
+        this(new TranspositionTable(tableBits));
+    }
+
+    // the table can be shared with searchers running on other threads
+    public AlphaBetaSearcher(TranspositionTable table) {
+        this.table = table;
+        allocateBuffers(BitboardPosition.SQUARE_COUNT, BitboardPosition.MAX_MOVES);
+    }
+
+    private void allocateBuffers(int squareCount, int maxMoves) {
+        this.squareCount = squareCount;
+        moveBuffers = new int[MAX_DEPTH + 1][maxMoves];
+        historyScores = new int[squareCount * squareCount];
+    }
+
+    // best move for the side to move found within the time limit, -1 if there is no legal move
+    public int findBestMove(SearchPosition root, Square turn, long timeLimitMillis) {
+        clearStopRequest();
+        return findBestMove(root, turn, System.nanoTime() + timeLimitMillis * 1_000_000L, 1, MAX_DEPTH);
+    }
+
+    // iterates from startDepth up to maxDepth until the System.nanoTime() deadline passes or stop() is called,
+    // a stop requested before the call is kept so the search returns right away
+    public int findBestMove(SearchPosition root, Square turn, long deadlineNanos, int startDepth, int maxDepth) {
+        if (root.getSquareCount() != squareCount || root.getMaxMoves() != moveBuffers[0].length) {
+            // buffers follow the board of the last search
+            allocateBuffers(root.getSquareCount(), root.getMaxMoves());
+        }
+        position = root.copy();
+        nodes = 0;
+        stopped = false;
+        completedDepth = 0;
+        bestScore = 0;
+        deadline = deadlineNanos;
+        for (int i = 0; i < historyScores.length; i++) {
+            historyScores[i] = 0;
+        }
+
+        boolean foxToMove = turn == Square.BLUE;
+        int[] rootMoves = new int[position.getMaxMoves()];
+        int rootCount = foxToMove ? position.generateFoxMoves(rootMoves) : position.generateHoundMoves(rootMoves);
+        if (rootCount == 0) {
+            bestMove = -1;
+            return bestMove;
+        }
+        bestMove = rootMoves[0];
+        if (rootCount == 1) {
+            return bestMove;
+        }
+
+        long hash = position.hash(foxToMove);
+        for (int depth = startDepth; depth <= maxDepth; depth++) {
+            moveToFront(rootMoves, rootCount, bestMove);
+            int alpha = -INFINITY;
+            int iterationBest = -1;
+            for (int i = 0; i < rootCount; i++) {
+                int move = rootMoves[i];
+                int from = BitboardPosition.moveFrom(move);
+                int to = BitboardPosition.moveTo(move);
+                position.move(from, to);
+                int score = -search(depth - 1, 1, -INFINITY, -alpha, !foxToMove, hash ^ position.moveKey(foxToMove, from, to));
+                position.move(to, from);
+                if (stopped) {
+                    break;
+                }
+                if (score > alpha) {
+                    alpha = score;
+                    iterationBest = move;
+                }
+            }
+            if (stopped) {
+                break;
+            }
+            bestMove = iterationBest;
+            bestScore = alpha;
+            completedDepth = depth;
+            if (Math.abs(alpha) >= WIN_THRESHOLD) {
+                break;
+            }
+        }
+        return bestMove;
+    }
+
+    // can be called from another thread, the running search returns its last finished iteration
+    public void stop() {
+        stopRequested = true;
+    }
+    public void clearStopRequest() {
+        stopRequested = false;
+    }
+
+    public void clearTable() {
+        table.clear();
+    }
+
+    public int getBestScore() {
+        return bestScore;
+    }
+    public int getCompletedDepth() {
+        return completedDepth;
+    }
+    public long getNodes() {
+        return nodes;
+    }
+
+    private int search(int depth, int ply, int alpha, int beta, boolean foxToMove, long hash) {
+        nodes++;
+        if (nodes % TIME_CHECK_INTERVAL == 0 && (stopRequested || System.nanoTime() - deadline > 0)) {
+            stopped = true;
+        }
+        if (stopped) {
+            return 0;
+        }
+
+        if (position.hasFoxReachedTop()) {
+            return foxToMove ? WIN_SCORE - ply : -(WIN_SCORE - ply);
+        }
+        if (foxToMove && position.isFoxTrapped()) {
+            return -(WIN_SCORE - ply);
+        }
+        if (depth == 0 || ply >= MAX_DEPTH) {
+            return foxToMove ? position.evaluateForFox() : -position.evaluateForFox();
+        }
+
+        int ttMove = -1;
+        long entry = table.probe(hash);
+        if (entry != 0) {
+            ttMove = TranspositionTable.entryMove(entry);
+            if (TranspositionTable.entryDepth(entry) >= depth) {
+                int score = fromTableScore(TranspositionTable.entryScore(entry), ply);
+                int flag = TranspositionTable.entryFlag(entry);
+                if (flag == TranspositionTable.EXACT
+                        || (flag == TranspositionTable.LOWER_BOUND && score >= beta)
+                        || (flag == TranspositionTable.UPPER_BOUND && score <= alpha)) {
+                    return score;
+                }
+            }
+        }
+
+        int[] moves = moveBuffers[ply];
+        int count = foxToMove ? position.generateFoxMoves(moves) : position.generateHoundMoves(moves);
+        if (count == 0) {
+            // blocked hounds give up their turn
+            return -search(depth - 1, ply + 1, -beta, -alpha, true, hash ^ position.passKey());
+        }
+        orderMoves(moves, count, ttMove);
+
+        int originalAlpha = alpha;
+        int best = -INFINITY;
+        int bestLocalMove = moves[0];
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            int from = BitboardPosition.moveFrom(move);
+            int to = BitboardPosition.moveTo(move);
+            position.move(from, to);
+            int score = -search(depth - 1, ply + 1, -beta, -alpha, !foxToMove, hash ^ position.moveKey(foxToMove, from, to));
+            position.move(to, from);
+            if (stopped) {
+                return 0;
+            }
+            if (score > best) {
+                best = score;
+                bestLocalMove = move;
+            }
+            if (score > alpha) {
+                alpha = score;
+            }
+            if (alpha >= beta) {
+                historyScores[from * squareCount + to] += depth * depth;
+                break;
+            }
+        }
+
+        int flag = best <= originalAlpha ? TranspositionTable.UPPER_BOUND
+                : best >= beta ? TranspositionTable.LOWER_BOUND
+                : TranspositionTable.EXACT;
+        table.store(hash, bestLocalMove, toTableScore(best, ply), depth, flag);
+        return best;
+    }
+
+    private void orderMoves(int[] moves, int count, int ttMove) {
+        for (int i = 0; i < count; i++) {
+            int best = i;
+            int bestValue = moveOrderValue(moves[i], ttMove);
+            for (int j = i + 1; j < count; j++) {
+                int value = moveOrderValue(moves[j], ttMove);
+                if (value > bestValue) {
+                    best = j;
+                    bestValue = value;
+                }
+            }
+            int tmp = moves[i];
+            moves[i] = moves[best];
+            moves[best] = tmp;
+        }
+    }
+    private int moveOrderValue(int move, int ttMove) {
+        if (move == ttMove) {
+            return Integer.MAX_VALUE;
+        }
+        return historyScores[BitboardPosition.moveFrom(move) * squareCount + BitboardPosition.moveTo(move)];
+    }
+    private static void moveToFront(int[] moves, int count, int move) {
+        for (int i = 0; i < count; i++) {
+            if (moves[i] == move) {
+                System.arraycopy(moves, 0, moves, 1, i);
+                moves[0] = move;
+                return;
+            }
+        }
+    }
+
+    // win scores are stored relative to the node so they stay valid at any ply
+    private static int toTableScore(int score, int ply) {
+        if (score >= WIN_THRESHOLD) {
+            return score + ply;
+        }
+        if (score <= -WIN_THRESHOLD) {
+            return score - ply;
+        }
+        return score;
+    }
+    private static int fromTableScore(int score, int ply) {
+        if (score >= WIN_THRESHOLD) {
+            return score - ply;
+        }
+        if (score <= -WIN_THRESHOLD) {
+            return score + ply;
+        }
+        return score;
+    }
+}
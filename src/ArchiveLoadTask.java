@@ -0,0 +1,38 @@
+import javafx.concurrent.Task;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+// Reads one game of a GameArchive off the FX thread and turns it into a SavedGame at the given
+// ply (-1 for the end), so it is applied exactly like a loaded save file.
+public class ArchiveLoadTask extends Task<SaveFormat.SavedGame> {
+
+    private Path path;
+    private int number;
+    private int ply;
+
+    public ArchiveLoadTask(Path path, int number, int ply) {
+        this.path = path;
+        this.number = number;
+        this.ply = ply;
+    }
+
+    @Override
+    protected SaveFormat.SavedGame call() throws IOException {
+        long start = System.nanoTime();
+        GameMetrics.LOADS.increment();
+        // read-only, a tournament may be appending to the archive at the same time
+        try (GameArchive archive = GameArchive.openReadOnly(path)) {
+            if (number < 0 || number >= archive.size()) {
+                throw new SaveFormat.InvalidFileException("No game " + number + " in " + path.getFileName());
+            }
+            GameArchive.ArchivedGame game = archive.read(number);
+            return game.toSavedGame(ply == -1 ? game.getLog().size() : ply);
+        } catch (IOException e) {
+            GameMetrics.IO_FAILURES.increment();
+            throw e;
+        } finally {
+            GameMetrics.recordSince(GameMetrics.LOAD_NANOS, start);
+        }
+    }
+}
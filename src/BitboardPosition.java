@@ -0,0 +1,337 @@
+import java.util.Arrays;
+
+public class BitboardPosition implements SearchPosition {
+
+    // only dark squares ((row + col) odd) are playable, one bit per dark square:
+    // square index = row * (COL_COUNT / 2) + col / 2
+    public static final int SQUARES_PER_ROW = GameParams.COL_COUNT / 2;
+    public static final int SQUARE_COUNT = GameParams.ROW_COUNT * SQUARES_PER_ROW;
+    public static final int ALL_SQUARES = SQUARE_COUNT == 32 ? -1 : (1 << SQUARE_COUNT) - 1;
+    public static final int TOP_ROW = (1 << SQUARES_PER_ROW) - 1;
+    // setStartPosition puts a hound on every dark square of the first row
+    public static final int HOUND_COUNT = SQUARES_PER_ROW;
+    // fox has at most 4 moves, every hound at most 2
+    public static final int MAX_MOVES = 8;
+
+    // board surrounded by a one square border, light and border cells map to -1
+    // so the diagonal neighbours of any board cell can be looked up without bounds checks
+    private static final int PADDED_COLS = GameParams.COL_COUNT + 2;
+    private static final int[] PADDED_SQUARES = new int[(GameParams.ROW_COUNT + 2) * PADDED_COLS];
+    private static final int[] DIAGONAL_OFFSETS = {PADDED_COLS - 1, PADDED_COLS + 1, -PADDED_COLS - 1, -PADDED_COLS + 1};
+
+    private static final int[] ROW_OF = new int[SQUARE_COUNT];
+    private static final int[] COL_OF = new int[SQUARE_COUNT];
+    private static final int[] FORWARD_NEIGHBOURS = new int[SQUARE_COUNT];
+    private static final int[] ALL_NEIGHBOURS = new int[SQUARE_COUNT];
+
+    // a forward step is always a shift by SQUARES_PER_ROW - 1, SQUARES_PER_ROW or SQUARES_PER_ROW + 1,
+    // FORWARD_SHIFT_SOURCES[i] holds the squares that can make the step shifted by SQUARES_PER_ROW - 1 + i
+    private static final int[] FORWARD_SHIFT_SOURCES = new int[3];
+
+    static {
+        Arrays.fill(PADDED_SQUARES, -1);
+        for (int square = 0; square < SQUARE_COUNT; square++) {
+            ROW_OF[square] = square / SQUARES_PER_ROW;
+            COL_OF[square] = 2 * (square % SQUARES_PER_ROW) + (ROW_OF[square] % 2 == 0 ? 1 : 0);
+            PADDED_SQUARES[paddedCell(ROW_OF[square], COL_OF[square])] = square;
+        }
+        for (int square = 0; square < SQUARE_COUNT; square++) {
+            int cell = paddedCell(ROW_OF[square], COL_OF[square]);
+            for (int i = 0; i < DIAGONAL_OFFSETS.length; i++) {
+                int target = PADDED_SQUARES[cell + DIAGONAL_OFFSETS[i]];
+                if (target == -1) {
+                    continue;
+                }
+                // the first two offsets step towards higher rows
+                if (i < 2) {
+                    FORWARD_NEIGHBOURS[square] |= 1 << target;
+                    FORWARD_SHIFT_SOURCES[target - square - (SQUARES_PER_ROW - 1)] |= 1 << square;
+                }
+                ALL_NEIGHBOURS[square] |= 1 << target;
+            }
+        }
+    }
+
+    private static int paddedCell(int row, int col) {
+        return (row + 1) * PADDED_COLS + col + 1;
+    }
+
+    private int fox;
+    private int hounds;
+    // index of the fox bit (-1 without a fox), kept next to the mask so fox lookups need no bit scan
+    private int foxSquare;
+
+    public BitboardPosition() {
+        clear();
+    }
+
+    public BitboardPosition(BitboardPosition other) {
+        fox = other.fox;
+        hounds = other.hounds;
+        foxSquare = other.foxSquare;
+    }
+
+    @Override
+    public BitboardPosition copy() {
+        return new BitboardPosition(this);
+    }
+
+    public static boolean isDarkSquare(int row, int col) {
+        return squareIndex(row, col) != -1;
+    }
+    // -1 for light squares and for cells one step off the board
+    public static int squareIndex(int row, int col) {
+        return PADDED_SQUARES[paddedCell(row, col)];
+    }
+    public static int rowOf(int square) {
+        return ROW_OF[square];
+    }
+    public static int colOf(int square) {
+        return COL_OF[square];
+    }
+
+    // moves are packed into a single int: from square in bits 8-15, to square in bits 0-7
+    public static int packMove(int from, int to) {
+        return from << 8 | to;
+    }
+    public static int moveFrom(int move) {
+        return move >>> 8;
+    }
+    public static int moveTo(int move) {
+        return move & 0xFF;
+    }
+
+    public void clear() {
+        fox = 0;
+        hounds = 0;
+        foxSquare = -1;
+    }
+
+    public void setStartPosition() {
+        clear();
+        for (int col = 1; col < GameParams.COL_COUNT; col = col + 2) {
+            hounds |= 1 << squareIndex(0, col);
+        }
+        foxSquare = squareIndex(GameParams.ROW_COUNT - 1, GameParams.COL_COUNT / 2);
+        fox = 1 << foxSquare;
+    }
+
+    public int getFox() {
+        return fox;
+    }
+    public int getHounds() {
+        return hounds;
+    }
+    public int getEmpty() {
+        return ALL_SQUARES & ~(fox | hounds);
+    }
+    public int getFoxSquare() {
+        return foxSquare;
+    }
+
+    // no validation, the masks have to come from another position
+    public void setMasks(int fox, int hounds) {
+        this.fox = fox;
+        this.hounds = hounds;
+        foxSquare = fox == 0 ? -1 : Integer.numberOfTrailingZeros(fox);
+    }
+
+    public Square squareAt(int row, int col) {
+        int square = squareIndex(row, col);
+        if (square == -1) {
+            return null;
+        }
+        int bit = 1 << square;
+        if ((fox & bit) != 0) {
+            return Square.BLUE;
+        }
+        if ((hounds & bit) != 0) {
+            return Square.RED;
+        }
+        return Square.EMPTY;
+    }
+    public void setSquare(int row, int col, Square square) {
+        int index = squareIndex(row, col);
+        if (index == -1) {
+            return;
+        }
+        int bit = 1 << index;
+        fox &= ~bit;
+        hounds &= ~bit;
+        if (fox == 0) {
+            foxSquare = -1;
+        }
+        if (square == Square.BLUE) {
+            fox = bit;
+            foxSquare = index;
+        } else if (square == Square.RED) {
+            hounds |= bit;
+        }
+    }
+    public static BitboardPosition fromBoard(Square[][] board) {
+        BitboardPosition position = new BitboardPosition();
+        for (int row = 0; row < board.length; row++) {
+            for (int col = 0; col < board[row].length; col++) {
+                position.setSquare(row, col, board[row][col]);
+            }
+        }
+        return position;
+    }
+
+    // targets of the piece standing on the given square, 0 if the square is empty
+    public int getMovesFrom(int square) {
+        int bit = 1 << square;
+        if ((fox & bit) != 0) {
+            return ALL_NEIGHBOURS[square] & getEmpty();
+        }
+        if ((hounds & bit) != 0) {
+            return FORWARD_NEIGHBOURS[square] & getEmpty();
+        }
+        return 0;
+    }
+    // the fox is never its own neighbour, so only the hounds can block it
+    public int getFoxTargets() {
+        return foxSquare == -1 ? 0 : ALL_NEIGHBOURS[foxSquare] & ~hounds;
+    }
+    // every square some hound can step to, computed for all hounds at once
+    public int getHoundTargets() {
+        int empty = getEmpty();
+        int targets = 0;
+        for (int i = 0; i < FORWARD_SHIFT_SOURCES.length; i++) {
+            targets |= (hounds & FORWARD_SHIFT_SOURCES[i]) << (SQUARES_PER_ROW - 1 + i);
+        }
+        return targets & empty;
+    }
+
+    public static int getHoundSteps(int square) {
+        return FORWARD_NEIGHBOURS[square];
+    }
+
+    // all diagonal neighbours of the given squares, computed for the whole set at once
+    public static int getNeighbours(int squares) {
+        int neighbours = 0;
+        for (int i = 0; i < FORWARD_SHIFT_SOURCES.length; i++) {
+            int shift = SQUARES_PER_ROW - 1 + i;
+            neighbours |= (squares & FORWARD_SHIFT_SOURCES[i]) << shift;
+            neighbours |= (squares & (FORWARD_SHIFT_SOURCES[i] << shift)) >>> shift;
+        }
+        return neighbours;
+    }
+
+    @Override
+    public int getSquareCount() {
+        return SQUARE_COUNT;
+    }
+    @Override
+    public int getMaxMoves() {
+        return MAX_MOVES;
+    }
+
+    // generators write packed moves into the given buffer (at least MAX_MOVES long) and return their count
+    public int generateMovesFrom(int square, int[] moves) {
+        return writeMoves(square, getMovesFrom(square), moves, 0);
+    }
+    @Override
+    public int generateFoxMoves(int[] moves) {
+        return foxSquare == -1 ? 0 : writeMoves(foxSquare, getFoxTargets(), moves, 0);
+    }
+    @Override
+    public int generateHoundMoves(int[] moves) {
+        int empty = getEmpty();
+        int count = 0;
+        for (int i = 0; i < FORWARD_SHIFT_SOURCES.length; i++) {
+            int shift = SQUARES_PER_ROW - 1 + i;
+            int targets = ((hounds & FORWARD_SHIFT_SOURCES[i]) << shift) & empty;
+            while (targets != 0) {
+                int to = Integer.numberOfTrailingZeros(targets);
+                targets &= targets - 1;
+                moves[count++] = packMove(to - shift, to);
+            }
+        }
+        return count;
+    }
+    private static int writeMoves(int from, int targets, int[] moves, int count) {
+        while (targets != 0) {
+            int to = Integer.numberOfTrailingZeros(targets);
+            targets &= targets - 1;
+            moves[count++] = packMove(from, to);
+        }
+        return count;
+    }
+
+    @Override
+    public boolean isFoxTrapped() {
+        return foxSquare != -1 && (ALL_NEIGHBOURS[foxSquare] & ~hounds) == 0;
+    }
+    @Override
+    public boolean hasFoxReachedTop() {
+        return (fox & TOP_ROW) != 0;
+    }
+    public boolean canHoundsMove() {
+        return getHoundTargets() != 0;
+    }
+
+    public void makeMove(int move) {
+        move(moveFrom(move), moveTo(move));
+    }
+    @Override
+    public void move(int from, int to) {
+        int fromBit = 1 << from;
+        int toBit = 1 << to;
+        if ((fox & fromBit) != 0) {
+            fox = toBit;
+            foxSquare = to;
+        } else {
+            hounds = (hounds & ~fromBit) | toBit;
+        }
+    }
+
+    @Override
+    public int evaluateForFox() {
+        int foxRow = rowOf(foxSquare);
+        int houndsAhead = hounds & ((1 << foxRow * SQUARES_PER_ROW) - 1);
+        // hounds only move away from the top row, so once none is ahead the fox walks home
+        if (houndsAhead == 0) {
+            return FREE_FOX_SCORE - foxRow;
+        }
+
+        int empty = getEmpty();
+        int reach = fox;
+        int next = reach | (getNeighbours(reach) & empty);
+        while (next != reach) {
+            reach = next;
+            next = reach | (getNeighbours(reach) & empty);
+        }
+        int score = (reach & TOP_ROW) != 0 ? 300 : -300 + 8 * Integer.bitCount(reach);
+        score -= 10 * foxRow;
+        score += 4 * Integer.bitCount(getFoxTargets());
+        return score;
+    }
+
+    @Override
+    public long hash(boolean foxToMove) {
+        return Zobrist.hash(this, foxToMove ? Square.BLUE : Square.RED);
+    }
+    @Override
+    public long moveKey(boolean foxMove, int from, int to) {
+        return Zobrist.moveKey(foxMove, from, to);
+    }
+    @Override
+    public long passKey() {
+        return Zobrist.FOX_TO_MOVE_KEY;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof BitboardPosition)) {
+            return false;
+        }
+        BitboardPosition other = (BitboardPosition) o;
+        return fox == other.fox && hounds == other.hounds;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * fox + hounds;
+    }
+}
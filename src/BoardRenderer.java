@@ -0,0 +1,26 @@
+import javafx.scene.Node;
+
+// Draws the board for GameView. Squares are numbered like in BitboardPosition over the board set
+// by setBoard, clicks are reported as board cells so light squares still reach the model.
+public interface BoardRenderer {
+
+    interface ClickHandler {
+        void squareClicked(int row, int col);
+    }
+
+    Node getNode();
+
+    void setClickHandler(ClickHandler handler);
+
+    // resizes to the variant's board, empty and without highlights
+    void setBoard(BoardVariant variant);
+
+    // on the 8x8 board
+    void showPosition(BitboardPosition position);
+
+    void showPosition(VariantPosition position);
+
+    void setHighlighted(int square, boolean highlighted);
+
+    void clearHighlights();
+}
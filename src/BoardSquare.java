@@ -5,16 +5,24 @@ import javafx.scene.layout.*;
 import javafx.scene.paint.Color;
 import javafx.scene.shape.Circle;
 
+import java.util.HashMap;
+import java.util.Map;
+
 public class BoardSquare extends StackPane {
 
+    // Backgrounds are immutable, so every square shows the same instance per colour
+    private static final Map<Color, Background> BACKGROUNDS = new HashMap<>();
+
     private Color color;
     private Circle circle;
+    private Square piece;
     protected boolean isHighlighted;
 
     public BoardSquare(Color defaultColor) {
         color = defaultColor;
         setColor(color);
         isHighlighted = false;
+        piece = Square.EMPTY;
         createCircle();
         getChildren().add(circle);
         setPrefSize(50,50);
@@ -39,9 +47,11 @@ public class BoardSquare extends StackPane {
     }
 
     public void setColor(Color color) {
-        BackgroundFill bgFill = new BackgroundFill(color, CornerRadii.EMPTY, new Insets(1));
-        Background bg = new Background(bgFill);
-        setBackground(bg);
+        Background bg = BACKGROUNDS.computeIfAbsent(color,
+                c -> new Background(new BackgroundFill(c, CornerRadii.EMPTY, new Insets(1))));
+        if (getBackground() != bg) {
+            setBackground(bg);
+        }
     }
 
     public void createCircle() {
@@ -53,13 +63,20 @@ public class BoardSquare extends StackPane {
         circle.setVisible(false);
     }
 
-    public void showCircle() {
-        circle.setVisible(true);
+    public Square getPiece() {
+        return piece;
     }
-    public void hideCircle() {
-        circle.setVisible(false);
+    // EMPTY hides the circle, the scene graph is only touched when the piece changes
+    public void setPiece(Square piece) {
+        if (piece == this.piece) {
+            return;
+        }
+        this.piece = piece;
+        if (piece == Square.EMPTY) {
+            circle.setVisible(false);
+            return;
+        }
+        circle.setFill(piece == Square.BLUE ? Color.BLUE : Color.RED);
+        circle.setVisible(true);
     }
-
-    public void setCircleRed() { circle.setFill(Color.RED); }
-    public void setCircleBlue() { circle.setFill(Color.BLUE); }
 }
@@ -0,0 +1,177 @@
+import java.util.ArrayList;
+import java.util.Random;
+
+// Board geometry and starting setup of a Fox and Hounds variant, chosen at runtime.
+//
+// Squares are numbered like in BitboardPosition: only dark squares ((row + col) odd) count,
+// index = row * (cols / 2) + col / 2, so the column count has to be even. The hounds start on the
+// dark squares of the first rows, the fox on the last row as close to the middle as possible.
+// The classic game is 8x8 with 4 hounds; spec strings look like "10x10" or "12x12:8" (8 hounds).
+public class BoardVariant {
+
+    public static final BoardVariant CLASSIC = new BoardVariant(GameParams.ROW_COUNT, GameParams.COL_COUNT, Tablebase.HOUND_COUNT);
+
+    private int rows;
+    private int cols;
+    private int houndCount;
+    private int squaresPerRow;
+    private int squareCount;
+    private int[][] forwardSteps;
+    private int[][] allSteps;
+    private int foxStart;
+    private int[] houndStarts;
+    // for boards of up to 64 squares: FORWARD_SHIFT_SOURCES[i] as in BitboardPosition, over a long
+    private long[] forwardShiftSources;
+    // Zobrist keys for searching positions of this board
+    private long[] foxKeys;
+    private long[] houndKeys;
+    private long foxToMoveKey;
+
+    public BoardVariant(int rows, int cols, int houndCount) {
+        // packed moves keep a square in 8 bits
+        if (rows < 4 || cols < 4 || cols % 2 != 0 || rows * cols / 2 > 256) {
+            throw new IllegalArgumentException("Unsupported board " + rows + "x" + cols);
+        }
+        this.rows = rows;
+        this.cols = cols;
+        this.houndCount = houndCount;
+        squaresPerRow = cols / 2;
+        squareCount = rows * squaresPerRow;
+        if (houndCount < 1 || houndCount > squareCount - squaresPerRow) {
+            throw new IllegalArgumentException("Unsupported hound count " + houndCount);
+        }
+
+        forwardSteps = new int[squareCount][];
+        allSteps = new int[squareCount][];
+        for (int square = 0; square < squareCount; square++) {
+            ArrayList<Integer> forward = new ArrayList<>();
+            ArrayList<Integer> all = new ArrayList<>();
+            for (int dRow = 1; dRow >= -1; dRow -= 2) {
+                for (int dCol = -1; dCol <= 1; dCol += 2) {
+                    int target = squareIndex(rowOf(square) + dRow, colOf(square) + dCol);
+                    if (target == -1) {
+                        continue;
+                    }
+                    if (dRow == 1) {
+                        forward.add(target);
+                    }
+                    all.add(target);
+                }
+            }
+            forwardSteps[square] = forward.stream().mapToInt(Integer::intValue).toArray();
+            allSteps[square] = all.stream().mapToInt(Integer::intValue).toArray();
+        }
+
+        houndStarts = new int[houndCount];
+        for (int i = 0; i < houndCount; i++) {
+            houndStarts[i] = i;
+        }
+        int foxCol = cols / 2;
+        if (squareIndex(rows - 1, foxCol) == -1) {
+            foxCol--;
+        }
+        foxStart = squareIndex(rows - 1, foxCol);
+
+        if (squareCount <= 64) {
+            forwardShiftSources = new long[3];
+            for (int square = 0; square < squareCount; square++) {
+                for (int target : forwardSteps[square]) {
+                    forwardShiftSources[target - square - (squaresPerRow - 1)] |= 1L << square;
+                }
+            }
+        }
+
+        // seeded from the board so hashes stay the same between runs
+        Random random = new Random(((long) rows << 32) ^ cols << 16 ^ houndCount);
+        foxKeys = new long[squareCount];
+        houndKeys = new long[squareCount];
+        for (int square = 0; square < squareCount; square++) {
+            foxKeys[square] = random.nextLong();
+            houndKeys[square] = random.nextLong();
+        }
+        foxToMoveKey = random.nextLong();
+    }
+
+    // "ROWSxCOLS" or "ROWSxCOLS:HOUNDS", by default one hound per dark square of the first row
+    public static BoardVariant parse(String spec) {
+        String[] parts = spec.split(":");
+        String[] size = parts[0].split("x");
+        if (size.length != 2 || parts.length > 2) {
+            throw new IllegalArgumentException("Invalid board " + spec);
+        }
+        int rows = Integer.parseInt(size[0]);
+        int cols = Integer.parseInt(size[1]);
+        int hounds = parts.length > 1 ? Integer.parseInt(parts[1]) : cols / 2;
+        return new BoardVariant(rows, cols, hounds);
+    }
+
+    public int getRows() {
+        return rows;
+    }
+    public int getCols() {
+        return cols;
+    }
+    public int getHoundCount() {
+        return houndCount;
+    }
+    public int getSquaresPerRow() {
+        return squaresPerRow;
+    }
+    public int getSquareCount() {
+        return squareCount;
+    }
+    // the fox has at most 4 moves, every hound at most 2
+    public int getMaxMoves() {
+        return Math.max(4, 2 * houndCount);
+    }
+    public int getFoxStart() {
+        return foxStart;
+    }
+    public int getHoundStart(int i) {
+        return houndStarts[i];
+    }
+
+    // the board BitboardPosition, the tablebase and the save history of the 8x8 game are built for
+    public boolean isClassic() {
+        return rows == CLASSIC.rows && cols == CLASSIC.cols && houndCount == CLASSIC.houndCount;
+    }
+
+    // -1 for light squares and cells off the board
+    public int squareIndex(int row, int col) {
+        if (row < 0 || row >= rows || col < 0 || col >= cols || (row + col) % 2 == 0) {
+            return -1;
+        }
+        return row * squaresPerRow + col / 2;
+    }
+    public int rowOf(int square) {
+        return square / squaresPerRow;
+    }
+    public int colOf(int square) {
+        int row = rowOf(square);
+        return 2 * (square % squaresPerRow) + (row % 2 == 0 ? 1 : 0);
+    }
+    public int[] getForwardSteps(int square) {
+        return forwardSteps[square];
+    }
+    public int[] getAllSteps(int square) {
+        return allSteps[square];
+    }
+    // null when the board doesn't fit in a long
+    long[] getForwardShiftSources() {
+        return forwardShiftSources;
+    }
+    long getFoxKey(int square) {
+        return foxKeys[square];
+    }
+    long getHoundKey(int square) {
+        return houndKeys[square];
+    }
+    long getFoxToMoveKey() {
+        return foxToMoveKey;
+    }
+
+    @Override
+    public String toString() {
+        return rows + "x" + cols + ":" + houndCount;
+    }
+}
@@ -0,0 +1,182 @@
+import javafx.geometry.Insets;
+import javafx.scene.Node;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.layout.Region;
+import javafx.scene.paint.Color;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+// The whole board on a single Canvas, repainted from the pieces and highlights of every square.
+//
+// Changes only mark the board dirty and request a layout pass, so any number of updates within
+// one pulse cost a single repaint. Clicks are hit-tested against the square grid here.
+public class CanvasBoardRenderer extends Region implements BoardRenderer {
+
+    private static final double SQUARE_SIZE = 50;
+    private static final double SQUARE_INSET = 1;
+    private static final double PIECE_MARGIN = 6;
+
+    private Canvas canvas;
+    private ClickHandler clickHandler;
+    private BoardVariant variant;
+    // masks of the last 8x8 position, so an unchanged one costs two compares
+    private int fox;
+    private int hounds;
+    private Square[] pieces;
+    private BitSet highlightedSquares;
+    private boolean dirty;
+    // top-left corner and size of a square in canvas coordinates, set by the last repaint
+    private double boardX;
+    private double boardY;
+    private double squareSize;
+
+    public CanvasBoardRenderer() {
+        this(new Insets(25));
+    }
+
+    public CanvasBoardRenderer(Insets padding) {
+        canvas = new Canvas();
+        getChildren().add(canvas);
+        setPadding(padding);
+        highlightedSquares = new BitSet();
+        canvas.setOnMouseClicked(e -> {
+            int col = (int) Math.floor((e.getX() - boardX) / squareSize);
+            int row = (int) Math.floor((e.getY() - boardY) / squareSize);
+            if (clickHandler != null && row >= 0 && row < variant.getRows() && col >= 0 && col < variant.getCols()) {
+                clickHandler.squareClicked(row, col);
+            }
+        });
+        setBoard(BoardVariant.CLASSIC);
+    }
+
+    // larger boards prefer the space of the 8x8 one, squares shrink to fit whatever space they get
+    @Override
+    public void setBoard(BoardVariant variant) {
+        this.variant = variant;
+        Insets padding = getPadding();
+        double size = Math.min(SQUARE_SIZE, GameParams.COL_COUNT * SQUARE_SIZE / Math.max(variant.getRows(), variant.getCols()));
+        setPrefSize(variant.getCols() * size + padding.getLeft() + padding.getRight(),
+                variant.getRows() * size + padding.getTop() + padding.getBottom());
+        fox = 0;
+        hounds = 0;
+        pieces = new Square[variant.getSquareCount()];
+        Arrays.fill(pieces, Square.EMPTY);
+        highlightedSquares.clear();
+        dirty = false;
+        invalidate();
+    }
+
+    @Override
+    public Node getNode() {
+        return this;
+    }
+
+    @Override
+    public void setClickHandler(ClickHandler handler) {
+        clickHandler = handler;
+    }
+
+    @Override
+    public void showPosition(BitboardPosition position) {
+        if (position.getFox() != fox || position.getHounds() != hounds) {
+            fox = position.getFox();
+            hounds = position.getHounds();
+            for (int square = 0; square < pieces.length; square++) {
+                int bit = 1 << square;
+                pieces[square] = (fox & bit) != 0 ? Square.BLUE : (hounds & bit) != 0 ? Square.RED : Square.EMPTY;
+            }
+            invalidate();
+        }
+    }
+
+    @Override
+    public void showPosition(VariantPosition position) {
+        for (int square = 0; square < pieces.length; square++) {
+            Square piece = position.squareAt(square);
+            if (pieces[square] != piece) {
+                pieces[square] = piece;
+                invalidate();
+            }
+        }
+    }
+
+    @Override
+    public void setHighlighted(int square, boolean highlighted) {
+        if (highlightedSquares.get(square) != highlighted) {
+            highlightedSquares.set(square, highlighted);
+            invalidate();
+        }
+    }
+
+    @Override
+    public void clearHighlights() {
+        if (!highlightedSquares.isEmpty()) {
+            highlightedSquares.clear();
+            invalidate();
+        }
+    }
+
+    private void invalidate() {
+        if (!dirty) {
+            dirty = true;
+            requestLayout();
+        }
+    }
+
+    @Override
+    protected void layoutChildren() {
+        Insets insets = getInsets();
+        double width = Math.max(getWidth() - insets.getLeft() - insets.getRight(), 0);
+        double height = Math.max(getHeight() - insets.getTop() - insets.getBottom(), 0);
+        if (canvas.getWidth() != width || canvas.getHeight() != height) {
+            canvas.setWidth(width);
+            canvas.setHeight(height);
+            dirty = true;
+        }
+        canvas.relocate(insets.getLeft(), insets.getTop());
+        if (dirty) {
+            long start = System.nanoTime();
+            GameMetrics.PAINTS.increment();
+            paint();
+            dirty = false;
+            GameMetrics.recordSince(GameMetrics.PAINT_NANOS, start);
+        }
+    }
+
+    private void paint() {
+        double width = canvas.getWidth();
+        double height = canvas.getHeight();
+        int rows = variant.getRows();
+        int cols = variant.getCols();
+        squareSize = Math.min(width / cols, height / rows);
+        boardX = (width - squareSize * cols) / 2;
+        boardY = (height - squareSize * rows) / 2;
+
+        GraphicsContext gc = canvas.getGraphicsContext2D();
+        gc.clearRect(0, 0, width, height);
+        double inner = Math.max(squareSize - 2 * SQUARE_INSET, 0);
+        double radius = Math.max(squareSize / 2 - PIECE_MARGIN, 0);
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < cols; col++) {
+                double x = boardX + col * squareSize;
+                double y = boardY + row * squareSize;
+                int square = variant.squareIndex(row, col);
+                if (square == -1) {
+                    gc.setFill(Color.LIGHTGRAY);
+                } else {
+                    gc.setFill(highlightedSquares.get(square) ? Color.GRAY : Color.DARKGRAY);
+                }
+                gc.fillRect(x + SQUARE_INSET, y + SQUARE_INSET, inner, inner);
+                if (square == -1) {
+                    continue;
+                }
+                if (pieces[square] != Square.EMPTY) {
+                    gc.setFill(pieces[square] == Square.BLUE ? Color.BLUE : Color.RED);
+                    gc.fillOval(x + squareSize / 2 - radius, y + squareSize / 2 - radius, 2 * radius, 2 * radius);
+                }
+            }
+        }
+    }
+}
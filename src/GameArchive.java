@@ -0,0 +1,487 @@
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+// Many games in one append-only file, with an offset index for O(1) access to game N.
+//
+// data file layout (big-endian):
+//   int   magic "FHAR"
+//   int   format version
+// then one record per game:
+//   int   body length L
+//   body: short  tag count, then writeUTF key / value pairs (player names, results, ...)
+//         byte   side to move at the start, 0 BLUE / 1 RED
+//         int    fox mask at the start
+//         int    hound mask at the start
+//         byte   result, 0 unfinished / 1 BLUE won / 2 RED won / 3 draw
+//         int    number of plies N
+//         short[N] moves, 0xFFFF for a passed turn
+//   int   CRC32 of the body
+//
+// The index file (data file + ".idx") is "FHAI", the version and one long offset per game.
+// Records are appended to the data file and forced to disk before they are indexed, so on open an
+// index that is behind is completed by scanning the unindexed tail for records with a valid CRC,
+// and everything from the first one that isn't valid is cut off. One writer at a time: open()
+// locks archive + ".lock" and fails while another writer holds it. The lock has a file of its own
+// because closing any channel on a locked file drops the process's lock, readers included.
+// openReadOnly() changes nothing: it sees the games up to the last index entry whose record is
+// complete, so it can read while another process appends.
+//
+// usage: java GameArchive import <archive> <file.save>...
+//        java GameArchive export <archive> <game> <file.save> [ply]
+//        java GameArchive list <archive>
+public class GameArchive implements Closeable {
+
+    public static final int MAGIC = 0x46484152;
+    public static final int INDEX_MAGIC = 0x46484149;
+    public static final int VERSION = 1;
+    public static final int HEADER_SIZE = 8;
+    private static final int PASS_ON_DISK = 0xFFFF;
+    private static final int UNFINISHED = 0;
+    private static final int DRAW = 3;
+    // archives open for writing in this JVM, a second writer here must not even open the lock file
+    private static final Set<Path> WRITERS = ConcurrentHashMap.newKeySet();
+
+    public static class ArchivedGame {
+
+        private Map<String, String> tags;
+        private MoveLog log;
+        // null for a draw or an unfinished game, see isFinished
+        private Square winner;
+        private boolean finished;
+
+        public ArchivedGame(Map<String, String> tags, MoveLog log, boolean finished, Square winner) {
+            this.tags = tags;
+            this.log = log;
+            this.finished = finished;
+            this.winner = winner;
+        }
+
+        public Map<String, String> getTags() {
+            return tags;
+        }
+        public MoveLog getLog() {
+            return log;
+        }
+        public boolean isFinished() {
+            return finished;
+        }
+        public Square getWinner() {
+            return winner;
+        }
+
+        // the game with ply moves on the board and the rest left to redo, checked by replaying all of
+        // it through GameEngine.loadGame like a loaded save file
+        public SaveFormat.SavedGame toSavedGame(int ply) throws SaveFormat.InvalidFileException {
+            if (ply < 0 || ply > log.size()) {
+                throw new SaveFormat.InvalidFileException("Ply " + ply + " outside 0.." + log.size());
+            }
+            int[] moves = new int[log.size()];
+            for (int i = 0; i < moves.length; i++) {
+                moves[i] = log.getMove(i);
+            }
+            MoveLog atPly = new MoveLog(log.getStartPosition(), log.getStartTurn(), moves, moves.length, ply);
+            GameEngine replay = new GameEngine();
+            try {
+                replay.loadGame(atPly);
+            } catch (IllegalArgumentException e) {
+                throw new SaveFormat.InvalidFileException("Invalid move history: " + e.getMessage());
+            }
+            return new SaveFormat.SavedGame(new BitboardPosition(replay.getPosition()), replay.getTurn(), 0, 0, 0, atPly);
+        }
+    }
+
+    private Path path;
+    private FileChannel data;
+    private FileChannel index;
+    // null when read-only
+    private FileChannel lock;
+    private int size;
+    private boolean readOnly;
+
+    private GameArchive(Path path, FileChannel data, FileChannel index, FileChannel lock) {
+        this.path = path;
+        this.data = data;
+        this.index = index;
+        this.lock = lock;
+        readOnly = lock == null;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("usage: java GameArchive import|export|list <archive> ...");
+            System.exit(1);
+        }
+        // only import writes, the other commands can run next to a process appending to the archive
+        Path archivePath = Paths.get(args[1]);
+        try (GameArchive archive = args[0].equals("import") ? open(archivePath) : openReadOnly(archivePath)) {
+            switch (args[0]) {
+                case "import":
+                    for (int i = 2; i < args.length; i++) {
+                        SaveFormat.SavedGame game = SaveFormat.read(Paths.get(args[i]));
+                        if (game.getVariantGame() != null) {
+                            throw new SaveFormat.InvalidFileException(args[i] + " is a " + game.getVariantGame().getVariant()
+                                    + " game, archives hold 8x8 games only");
+                        }
+                        Map<String, String> tags = new LinkedHashMap<>();
+                        tags.put("source", Paths.get(args[i]).getFileName().toString());
+                        GameEngine replay = new GameEngine();
+                        replay.loadGame(game.getLog());
+                        replay.goToPly(game.getLog().size());
+                        archive.append(new ArchivedGame(tags, game.getLog(), replay.isGameOver(), replay.getWinner()));
+                    }
+                    System.out.println(archive.size() + " games in " + args[1]);
+                    break;
+                case "export":
+                    int number = Integer.parseInt(args[2]);
+                    ArchivedGame game = archive.read(number);
+                    int ply = args.length > 4 ? Integer.parseInt(args[4]) : game.getLog().size();
+                    SaveFormat.write(game.toSavedGame(ply), Paths.get(args[3]));
+                    System.out.println("game " + number + " at ply " + ply + " written to " + args[3]);
+                    break;
+                case "list":
+                    int[] listed = {0};
+                    archive.scan(g -> System.out.println(listed[0]++ + "\t" + g.getLog().size() + " plies\t"
+                            + (!g.isFinished() ? "unfinished" : g.getWinner() == null ? "draw" : g.getWinner() + " won")
+                            + "\t" + g.getTags()));
+                    break;
+                default:
+                    System.err.println("Unknown command " + args[0]);
+                    System.exit(1);
+            }
+        }
+    }
+
+    // creates the archive if it doesn't exist, repairs the index after an interrupted append; the
+    // lock on the data file is held until close
+    public static GameArchive open(Path path) throws IOException {
+        Path key = path.toAbsolutePath().normalize();
+        if (!WRITERS.add(key)) {
+            throw new IOException(path + " is already open for writing");
+        }
+        FileChannel lock = null;
+        FileChannel data = null;
+        FileChannel index = null;
+        try {
+            lock = FileChannel.open(path.resolveSibling(path.getFileName() + ".lock"), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            if (lock.tryLock() == null) {
+                throw new IOException(path + " is already open for writing by another process");
+            }
+            data = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            index = FileChannel.open(indexPath(path), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            GameArchive archive = new GameArchive(path, data, index, lock);
+            archive.checkHeader(data, MAGIC);
+            archive.checkHeader(index, INDEX_MAGIC);
+            archive.recover();
+            return archive;
+        } catch (IOException | RuntimeException e) {
+            try {
+                closeAll(data, index, lock);
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            WRITERS.remove(key);
+            throw e;
+        }
+    }
+
+    // never writes: no header for a new file, no repair, records past the last complete indexed
+    // one (an append in progress or a crashed one) are left out
+    public static GameArchive openReadOnly(Path path) throws IOException {
+        FileChannel data = FileChannel.open(path, StandardOpenOption.READ);
+        FileChannel index = null;
+        try {
+            index = FileChannel.open(indexPath(path), StandardOpenOption.READ);
+            GameArchive archive = new GameArchive(path, data, index, null);
+            archive.checkHeader(data, MAGIC);
+            archive.checkHeader(index, INDEX_MAGIC);
+            archive.findIndexedEnd(data.size());
+            return archive;
+        } catch (IOException | RuntimeException e) {
+            data.close();
+            if (index != null) {
+                index.close();
+            }
+            throw e;
+        }
+    }
+
+    private static Path indexPath(Path path) {
+        return path.resolveSibling(path.getFileName() + ".idx");
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    // appends the game and its index entry, returns its number
+    public synchronized int append(ArchivedGame game) throws IOException {
+        if (readOnly) {
+            throw new IllegalStateException(path + " is open read-only");
+        }
+        byte[] record = encode(game);
+        long offset = data.size();
+        writeFully(data, ByteBuffer.wrap(record), offset);
+        // an index entry must never reach the disk before its record
+        data.force(false);
+        ByteBuffer entry = ByteBuffer.allocate(Long.BYTES).putLong(0, offset);
+        writeFully(index, entry, HEADER_SIZE + (long) size * Long.BYTES);
+        return size++;
+    }
+
+    // one index read and one record read, independent of the archive size
+    public ArchivedGame read(int number) throws IOException {
+        if (number < 0 || number >= size()) {
+            throw new IndexOutOfBoundsException("Game " + number + " of " + size());
+        }
+        ByteBuffer entry = ByteBuffer.allocate(Long.BYTES);
+        readFully(index, entry, HEADER_SIZE + (long) number * Long.BYTES);
+        long offset = entry.getLong(0);
+        ByteBuffer length = ByteBuffer.allocate(Integer.BYTES);
+        readFully(data, length, offset);
+        int bodyLength = length.getInt(0);
+        if (bodyLength < 0 || offset + 8 + bodyLength > data.size()) {
+            throw new SaveFormat.InvalidFileException("Invalid record length at " + offset);
+        }
+        ByteBuffer record = ByteBuffer.allocate(bodyLength + 4);
+        readFully(data, record, offset + 4);
+        return decode(record.array(), bodyLength);
+    }
+
+    // reads the games in order through one buffered stream, without touching the index
+    public void scan(Consumer<ArchivedGame> visitor) throws IOException {
+        int count = size();
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(path))) {
+            DataInputStream dis = new DataInputStream(in);
+            dis.skipNBytes(HEADER_SIZE);
+            for (int i = 0; i < count; i++) {
+                int bodyLength = dis.readInt();
+                byte[] record = new byte[bodyLength + 4];
+                dis.readFully(record);
+                visitor.accept(decode(record, bodyLength));
+            }
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            closeAll(data, index, lock);
+        } finally {
+            if (lock != null) {
+                WRITERS.remove(path.toAbsolutePath().normalize());
+            }
+        }
+    }
+
+    // closes the channels that are open, the lock last, and rethrows the first failure
+    private static void closeAll(FileChannel... channels) throws IOException {
+        IOException failure = null;
+        for (FileChannel channel : channels) {
+            if (channel == null) {
+                continue;
+            }
+            try {
+                channel.close();
+            } catch (IOException e) {
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private static byte[] encode(ArchivedGame game) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(0);
+        out.writeShort(game.getTags().size());
+        for (Map.Entry<String, String> tag : game.getTags().entrySet()) {
+            out.writeUTF(tag.getKey());
+            out.writeUTF(tag.getValue());
+        }
+        MoveLog log = game.getLog();
+        BitboardPosition start = log.getStartPosition();
+        out.writeByte(log.getStartTurn() == Square.BLUE ? 0 : 1);
+        out.writeInt(start.getFox());
+        out.writeInt(start.getHounds());
+        out.writeByte(!game.isFinished() ? UNFINISHED : game.getWinner() == null ? DRAW : game.getWinner() == Square.BLUE ? 1 : 2);
+        out.writeInt(log.size());
+        for (int ply = 0; ply < log.size(); ply++) {
+            int move = log.getMove(ply);
+            out.writeShort(move == MoveLog.PASS ? PASS_ON_DISK : move);
+        }
+        out.writeInt(0);
+        ByteBuffer record = ByteBuffer.wrap(bytes.toByteArray());
+        int bodyLength = record.capacity() - 8;
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), 4, bodyLength);
+        record.putInt(0, bodyLength);
+        record.putInt(4 + bodyLength, (int) crc.getValue());
+        return record.array();
+    }
+
+    // record holds the body followed by its CRC
+    private static ArchivedGame decode(byte[] record, int bodyLength) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(record, 0, bodyLength);
+        ByteBuffer buffer = ByteBuffer.wrap(record);
+        if ((int) crc.getValue() != buffer.getInt(bodyLength)) {
+            throw new SaveFormat.InvalidFileException("Checksum mismatch");
+        }
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(record, 0, bodyLength));
+        try {
+            Map<String, String> tags = new LinkedHashMap<>();
+            int tagCount = in.readUnsignedShort();
+            for (int i = 0; i < tagCount; i++) {
+                tags.put(in.readUTF(), in.readUTF());
+            }
+            Square startTurn = in.readByte() == 0 ? Square.BLUE : Square.RED;
+            int fox = in.readInt();
+            int hounds = in.readInt();
+            if (!SaveFormat.isValidPosition(fox, hounds)) {
+                throw new SaveFormat.InvalidFileException("Invalid start position");
+            }
+            BitboardPosition start = new BitboardPosition();
+            start.setMasks(fox, hounds);
+            int result = in.readByte();
+            int plies = in.readInt();
+            if (plies < 0 || plies > bodyLength / 2) {
+                throw new SaveFormat.InvalidFileException("Invalid ply count " + plies);
+            }
+            int[] moves = new int[plies];
+            for (int ply = 0; ply < plies; ply++) {
+                int move = in.readUnsignedShort();
+                moves[ply] = move == PASS_ON_DISK ? MoveLog.PASS : move;
+            }
+            MoveLog log = new MoveLog(start, startTurn, moves, plies, plies);
+            Square winner = result == 1 ? Square.BLUE : result == 2 ? Square.RED : null;
+            return new ArchivedGame(tags, log, result != UNFINISHED, winner);
+        } catch (EOFException e) {
+            throw new SaveFormat.InvalidFileException("Record is truncated");
+        }
+    }
+
+    // writes the header of a new file, checks it on an existing one
+    private void checkHeader(FileChannel channel, int magic) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        if (channel.size() == 0 && !readOnly) {
+            header.putInt(magic).putInt(VERSION).flip();
+            writeFully(channel, header, 0);
+            return;
+        }
+        if (channel.size() < HEADER_SIZE) {
+            throw new SaveFormat.InvalidFileException("Archive header is truncated");
+        }
+        readFully(channel, header, 0);
+        if (header.getInt(0) != magic) {
+            throw new SaveFormat.InvalidFileException("Not a game archive");
+        }
+        if (header.getInt(4) != VERSION) {
+            throw new SaveFormat.InvalidFileException("Unsupported archive version " + header.getInt(4));
+        }
+    }
+
+    // drops index entries past the data, indexes the valid records appended after the last entry and
+    // cuts the data off at the first torn or corrupt one
+    private void recover() throws IOException {
+        long dataSize = data.size();
+        long next = findIndexedEnd(dataSize);
+        index.truncate(HEADER_SIZE + (long) size * Long.BYTES);
+
+        ByteBuffer length = ByteBuffer.allocate(Integer.BYTES);
+        List<Long> found = new ArrayList<>();
+        while (next + 8 <= dataSize) {
+            readFully(data, length.clear(), next);
+            int bodyLength = length.getInt(0);
+            long end = next + 8 + bodyLength;
+            if (bodyLength < 0 || end > dataSize) {
+                break;
+            }
+            ByteBuffer record = ByteBuffer.allocate(bodyLength + 4);
+            readFully(data, record, next + 4);
+            try {
+                decode(record.array(), bodyLength);
+            } catch (SaveFormat.InvalidFileException e) {
+                break;
+            }
+            found.add(next);
+            next = end;
+        }
+        for (long offset : found) {
+            writeFully(index, ByteBuffer.allocate(Long.BYTES).putLong(0, offset), HEADER_SIZE + (long) size * Long.BYTES);
+            size++;
+        }
+        if (next < dataSize) {
+            data.truncate(next);
+        }
+    }
+
+    // sets size to the index entries up to the last one whose record lies inside the data, and
+    // returns where that record ends
+    private long findIndexedEnd(long dataSize) throws IOException {
+        int entries = (int) ((index.size() - HEADER_SIZE) / Long.BYTES);
+        long end = HEADER_SIZE;
+        ByteBuffer entry = ByteBuffer.allocate(Long.BYTES);
+        ByteBuffer length = ByteBuffer.allocate(Integer.BYTES);
+        // the last entries are the only ones an interrupted append can have left behind
+        while (entries > 0) {
+            readFully(index, entry.clear(), HEADER_SIZE + (long) (entries - 1) * Long.BYTES);
+            long offset = entry.getLong(0);
+            if (offset >= HEADER_SIZE && offset + 8 <= dataSize) {
+                readFully(data, length.clear(), offset);
+                long recordEnd = offset + 8 + length.getInt(0);
+                if (length.getInt(0) >= 0 && recordEnd <= dataSize) {
+                    end = recordEnd;
+                    break;
+                }
+            }
+            entries--;
+        }
+        size = entries;
+        return end;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new SaveFormat.InvalidFileException("Archive is truncated");
+            }
+            position += read;
+        }
+    }
+}
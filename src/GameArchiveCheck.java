@@ -0,0 +1,284 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+// Fills a GameArchive in a temporary directory with seeded random games and checks it.
+//
+// Reads by number and the sequential scan have to return the games as appended, a read-only open
+// has to leave the files untouched and keep its view while a writer appends, and an illegal ply in
+// an archived game's redo part has to be rejected by toSavedGame. A second writer has to be
+// refused while one holds the archive, in this process and in another one. Then the crashes an
+// append can leave behind are simulated: a torn last record, an index that is behind the data, and
+// unindexed bytes that only look like records (zeros, a record with a bad checksum). A read-only
+// open has to skip what isn't committed, a normal open has to repair it.
+//
+// usage: java GameArchiveCheck [games] [seed]
+public class GameArchiveCheck {
+
+    private static int failures;
+
+    public static void main(String[] args) throws IOException {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 1;
+        Random random = new Random(seed);
+        Path directory = Files.createTempDirectory("archive-check");
+        Path path = directory.resolve("games.fha");
+        Path indexPath = directory.resolve("games.fha.idx");
+        Path lockPath = directory.resolve("games.fha.lock");
+        try {
+            List<GameArchive.ArchivedGame> appended = new ArrayList<>();
+            try (GameArchive archive = GameArchive.open(path)) {
+                for (int game = 0; game < games; game++) {
+                    GameArchive.ArchivedGame archived = randomGame(random, game);
+                    check(archive.append(archived) == game, "append returned the wrong number for game " + game);
+                    appended.add(archived);
+                }
+            }
+
+            try (GameArchive archive = GameArchive.open(path)) {
+                checkContents("reopened", archive, appended, random);
+                for (int i = 0; i < 100; i++) {
+                    checkSavedGame(archive.read(random.nextInt(games)), random);
+                }
+                checkSecondWriter(path);
+            }
+            try (GameArchive archive = GameArchive.open(path)) {
+                check(archive.size() == games, "open after the writer closed sees " + archive.size() + " games");
+            }
+
+            byte[] data = Files.readAllBytes(path);
+            byte[] index = Files.readAllBytes(indexPath);
+            try (GameArchive reader = GameArchive.openReadOnly(path)) {
+                checkContents("read-only", reader, appended, random);
+                try {
+                    reader.append(appended.get(0));
+                    check(false, "read-only archive accepted an append");
+                } catch (IllegalStateException e) {
+                    // expected
+                }
+                check(Arrays.equals(data, Files.readAllBytes(path)) && Arrays.equals(index, Files.readAllBytes(indexPath)),
+                        "read-only open changed the archive");
+                try (GameArchive writer = GameArchive.open(path)) {
+                    GameArchive.ArchivedGame archived = randomGame(random, games);
+                    writer.append(archived);
+                    appended.add(archived);
+                    check(reader.size() == games, "read-only archive grew to " + reader.size() + " while open");
+                    check(sameGame(reader.read(games - 1), appended.get(games - 1)), "read-only archive lost its last game");
+                }
+            }
+            try (GameArchive reader = GameArchive.openReadOnly(path)) {
+                check(reader.size() == games + 1, "read-only open sees " + reader.size() + " games, expected " + (games + 1));
+            }
+
+            checkIllegalRedo(path, appended);
+            data = Files.readAllBytes(path);
+            index = Files.readAllBytes(indexPath);
+            int committed = appended.size();
+
+            // an append that died inside its record: the data file ends in the middle of the last one
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                channel.truncate(data.length - 1 - random.nextInt(8));
+            }
+            byte[] tornData = Files.readAllBytes(path);
+            try (GameArchive reader = GameArchive.openReadOnly(path)) {
+                check(reader.size() == committed - 1, "read-only open of a torn archive sees " + reader.size() + " games");
+            }
+            check(Arrays.equals(tornData, Files.readAllBytes(path)) && Arrays.equals(index, Files.readAllBytes(indexPath)),
+                    "read-only open changed a torn archive");
+            appended.remove(committed - 1);
+            try (GameArchive archive = GameArchive.open(path)) {
+                checkContents("repaired torn", archive, appended, random);
+                GameArchive.ArchivedGame archived = randomGame(random, committed);
+                check(archive.append(archived) == committed - 1, "append after repair got the wrong number");
+                appended.add(archived);
+                check(sameGame(archive.read(committed - 1), archived), "game appended after repair differs");
+            }
+
+            // an append that died between the record and its index entry, several times over
+            int missing = 1 + random.nextInt(Math.min(50, appended.size()));
+            try (FileChannel channel = FileChannel.open(indexPath, StandardOpenOption.WRITE)) {
+                channel.truncate(GameArchive.HEADER_SIZE + (long) (appended.size() - missing) * Long.BYTES);
+            }
+            try (GameArchive reader = GameArchive.openReadOnly(path)) {
+                check(reader.size() == appended.size() - missing, "read-only open of a stale index sees " + reader.size() + " games");
+            }
+            try (GameArchive archive = GameArchive.open(path)) {
+                checkContents("re-indexed", archive, appended, random);
+            }
+
+            // zeros past the last record: an empty body has a CRC of 0, so only decoding rejects them
+            long committedLength = Files.size(path);
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                channel.write(ByteBuffer.allocate(64));
+            }
+            checkRepairedTail("zero tail", path, committedLength, appended, random);
+
+            // the last record unindexed and one of its body bytes flipped
+            index = Files.readAllBytes(indexPath);
+            long lastOffset = ByteBuffer.wrap(index).getLong(index.length - Long.BYTES);
+            try (FileChannel channel = FileChannel.open(indexPath, StandardOpenOption.WRITE)) {
+                channel.truncate(index.length - Long.BYTES);
+            }
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                ByteBuffer body = ByteBuffer.allocate(1);
+                long at = lastOffset + 4 + random.nextInt((int) (channel.size() - lastOffset - 8));
+                channel.read(body, at);
+                body.put(0, (byte) (body.get(0) ^ 0x10)).rewind();
+                channel.write(body, at);
+            }
+            appended.remove(appended.size() - 1);
+            checkRepairedTail("bad checksum tail", path, lastOffset, appended, random);
+        } finally {
+            Files.deleteIfExists(indexPath);
+            Files.deleteIfExists(lockPath);
+            Files.deleteIfExists(path);
+            Files.deleteIfExists(directory);
+        }
+        System.out.println(games + " games checked, " + failures + " failures");
+        if (failures > 0) {
+            System.exit(1);
+        }
+    }
+
+    // open has to refuse a second writer, from this process and from another one
+    private static void checkSecondWriter(Path path) throws IOException {
+        try (GameArchive second = GameArchive.open(path)) {
+            check(false, "a second writer opened the archive in the same process");
+        } catch (IOException e) {
+            // expected
+        }
+        Path java = Paths.get(System.getProperty("java.home"), "bin", "java");
+        Process process = new ProcessBuilder(java.toString(), "-cp", System.getProperty("java.class.path"),
+                "GameArchive", "import", path.toString()).redirectErrorStream(true).start();
+        String output = new String(process.getInputStream().readAllBytes());
+        try {
+            check(process.waitFor() != 0, "a second writer opened the archive from another process: " + output.trim());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // a normal open has to drop the bad tail, leave the games and accept appends after it
+    private static void checkRepairedTail(String name, Path path, long validLength, List<GameArchive.ArchivedGame> appended,
+            Random random) throws IOException {
+        try (GameArchive archive = GameArchive.open(path)) {
+            check(Files.size(path) == validLength, name + ": data is " + Files.size(path) + " bytes after repair, expected " + validLength);
+            checkContents(name, archive, appended, random);
+            GameArchive.ArchivedGame archived = randomGame(random, appended.size());
+            check(archive.append(archived) == appended.size(), name + ": append after repair got the wrong number");
+            appended.add(archived);
+        }
+        try (GameArchive reader = GameArchive.openReadOnly(path)) {
+            checkContents(name + " reopened", reader, appended, random);
+        }
+    }
+
+    // a random game, about a tenth of them left unfinished
+    private static GameArchive.ArchivedGame randomGame(Random random, int number) {
+        GameEngine engine = new GameEngine();
+        engine.newGame(random.nextBoolean() ? Square.BLUE : Square.RED);
+        int[] moves = new int[BitboardPosition.MAX_MOVES];
+        int stopAt = random.nextInt(10) == 0 ? random.nextInt(30) : Integer.MAX_VALUE;
+        while (!engine.isGameOver() && engine.getMoveLog().size() < stopAt) {
+            int count = engine.generateMoves(moves);
+            if (count == 0) {
+                engine.passTurn();
+            } else {
+                engine.applyMove(moves[random.nextInt(count)]);
+            }
+        }
+        Map<String, String> tags = new LinkedHashMap<>();
+        tags.put("game", Integer.toString(number));
+        tags.put("seed", Long.toString(random.nextLong()));
+        return new GameArchive.ArchivedGame(tags, new MoveLog(engine.getMoveLog()), engine.isGameOver(), engine.getWinner());
+    }
+
+    private static void checkContents(String name, GameArchive archive, List<GameArchive.ArchivedGame> appended, Random random)
+            throws IOException {
+        check(archive.size() == appended.size(), name + ": " + archive.size() + " games, expected " + appended.size());
+        if (archive.size() != appended.size()) {
+            return;
+        }
+        for (int i = 0; i < 200; i++) {
+            int number = random.nextInt(appended.size());
+            check(sameGame(archive.read(number), appended.get(number)), name + ": game " + number + " differs");
+        }
+        int[] scanned = {0};
+        archive.scan(game -> {
+            check(sameGame(game, appended.get(scanned[0])), name + ": scanned game " + scanned[0] + " differs");
+            scanned[0]++;
+        });
+        check(scanned[0] == appended.size(), name + ": scan returned " + scanned[0] + " games");
+    }
+
+    // the position toSavedGame puts on the board has to be the replayed one
+    private static void checkSavedGame(GameArchive.ArchivedGame game, Random random) throws IOException {
+        MoveLog log = game.getLog();
+        int ply = random.nextInt(log.size() + 1);
+        SaveFormat.SavedGame saved = game.toSavedGame(ply);
+        GameEngine replay = new GameEngine();
+        replay.loadGame(new MoveLog(log));
+        replay.goToPly(ply);
+        check(saved.getPosition().equals(replay.getPosition()) && saved.getTurn() == replay.getTurn()
+                && saved.getLog().getPly() == ply && saved.getLog().size() == log.size(), "toSavedGame at ply " + ply + " differs");
+    }
+
+    // the last ply of a game becomes a fox jump to the top row behind a valid checksum
+    private static void checkIllegalRedo(Path path, List<GameArchive.ArchivedGame> appended) throws IOException {
+        GameArchive.ArchivedGame original = appended.get(0);
+        MoveLog log = original.getLog();
+        if (log.size() == 0) {
+            return;
+        }
+        int[] moves = new int[log.size()];
+        for (int ply = 0; ply < moves.length; ply++) {
+            moves[ply] = log.getMove(ply);
+        }
+        BitboardPosition start = log.getStartPosition();
+        moves[moves.length - 1] = BitboardPosition.packMove(start.getFoxSquare(), 0);
+        MoveLog tampered = new MoveLog(start, log.getStartTurn(), moves, moves.length, moves.length);
+        GameArchive.ArchivedGame archived = new GameArchive.ArchivedGame(new LinkedHashMap<>(), tampered, false, null);
+        try (GameArchive archive = GameArchive.open(path)) {
+            GameArchive.ArchivedGame read = archive.read(archive.append(archived));
+            try {
+                read.toSavedGame(0);
+                check(false, "illegal redo ply was accepted");
+            } catch (SaveFormat.InvalidFileException e) {
+                // expected
+            }
+        }
+        appended.add(archived);
+    }
+
+    private static boolean sameGame(GameArchive.ArchivedGame a, GameArchive.ArchivedGame b) {
+        MoveLog x = a.getLog();
+        MoveLog y = b.getLog();
+        if (x.size() != y.size() || x.getStartTurn() != y.getStartTurn() || !x.getStartPosition().equals(y.getStartPosition())
+                || a.isFinished() != b.isFinished() || a.getWinner() != b.getWinner() || !a.getTags().equals(b.getTags())) {
+            return false;
+        }
+        for (int ply = 0; ply < x.size(); ply++) {
+            if (x.getMove(ply) != y.getMove(ply)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void check(boolean condition, String problem) {
+        if (!condition) {
+            failures++;
+            System.out.println(problem);
+        }
+    }
+}
@@ -0,0 +1,233 @@
+import java.util.ArrayList;
+
+public class GameEngine {
+
+    private BitboardPosition position;
+    private Square turn;
+    private Square winner;
+    private MoveLog log;
+    private ArrayList<GameEngineListener> listeners;
+
+    public GameEngine() {
+        position = new BitboardPosition();
+        turn = Square.BLUE;
+        winner = null;
+        log = new MoveLog(position, turn);
+        listeners = new ArrayList<>();
+    }
+
+    public void addListener(GameEngineListener listener) {
+        listeners.add(listener);
+    }
+    public void removeListener(GameEngineListener listener) {
+        listeners.remove(listener);
+    }
+
+    public void newGame(Square firstTurn) {
+        BitboardPosition start = new BitboardPosition();
+        start.setStartPosition();
+        loadPosition(start, firstTurn);
+    }
+
+    public void loadPosition(BitboardPosition newPosition, Square newTurn) {
+        loadGame(new MoveLog(newPosition, newTurn));
+    }
+
+    // replays the whole log once, so the plies after the cursor (kept for redo) are checked too,
+    // and stops at the cursor; on an illegal ply the engine keeps its previous game
+    public void loadGame(MoveLog newLog) {
+        BitboardPosition oldPosition = position;
+        Square oldTurn = turn;
+        Square oldWinner = winner;
+        BitboardPosition atCursor = null;
+        Square turnAtCursor = null;
+        position = newLog.getStartPosition();
+        turn = newLog.getStartTurn();
+        winner = findWinner();
+        for (int ply = 0; ply <= newLog.size(); ply++) {
+            if (ply == newLog.getPly()) {
+                atCursor = new BitboardPosition(position);
+                turnAtCursor = turn;
+            }
+            if (ply == newLog.size()) {
+                break;
+            }
+            int move = newLog.getMove(ply);
+            if (isGameOver() || (move != MoveLog.PASS && !isLegalMove(move))) {
+                position = oldPosition;
+                turn = oldTurn;
+                winner = oldWinner;
+                throw new IllegalArgumentException("Illegal move " + move + " at ply " + ply);
+            }
+            if (move != MoveLog.PASS) {
+                position.makeMove(move);
+            }
+            turn = opponent(turn);
+            winner = findWinner();
+        }
+        position = atCursor;
+        turn = turnAtCursor;
+        winner = findWinner();
+        log = newLog;
+        for (GameEngineListener listener : listeners) {
+            listener.positionReset();
+        }
+        fireTurnChanged();
+        if (winner != null) {
+            for (GameEngineListener listener : listeners) {
+                listener.gameOver(winner);
+            }
+        }
+    }
+
+    public BitboardPosition getPosition() {
+        return position;
+    }
+    public MoveLog getMoveLog() {
+        return log;
+    }
+    public Square getTurn() {
+        return turn;
+    }
+    public Square getWinner() {
+        return winner;
+    }
+    public boolean isGameOver() {
+        return winner != null;
+    }
+    public Square pieceAt(int row, int col) {
+        return position.squareAt(row, col);
+    }
+
+    // legal moves of the side to move, none once the game is over
+    public int generateMoves(int[] moves) {
+        if (isGameOver()) {
+            return 0;
+        }
+        return turn == Square.BLUE ? position.generateFoxMoves(moves) : position.generateHoundMoves(moves);
+    }
+    // legal moves of the piece on the given square, none if it does not belong to the side to move
+    public int generateMovesFrom(int square, int[] moves) {
+        if (isGameOver() || square == -1 || position.squareAt(BitboardPosition.rowOf(square), BitboardPosition.colOf(square)) != turn) {
+            return 0;
+        }
+        return position.generateMovesFrom(square, moves);
+    }
+    public boolean isLegalMove(int move) {
+        int from = BitboardPosition.moveFrom(move);
+        int to = BitboardPosition.moveTo(move);
+        // shifts only use the low 5 bits of their count, so squares past the board would alias
+        if (isGameOver() || from >= BitboardPosition.SQUARE_COUNT || to >= BitboardPosition.SQUARE_COUNT) {
+            return false;
+        }
+        int piece = turn == Square.BLUE ? position.getFox() : position.getHounds();
+        return (piece & (1 << from)) != 0 && (position.getMovesFrom(from) & (1 << to)) != 0;
+    }
+
+    public void applyMove(int move) {
+        if (!isLegalMove(move)) {
+            throw new IllegalArgumentException("Illegal move " + move + " for " + turn);
+        }
+        log.append(move);
+        playMove(move);
+    }
+
+    // side to move gives up its turn (time ran out, or the hounds are blocked)
+    public void passTurn() {
+        if (isGameOver()) {
+            return;
+        }
+        log.append(MoveLog.PASS);
+        switchTurn();
+    }
+
+    // takes back the last ply, only the squares it changed are touched
+    public boolean undo() {
+        if (!log.canUndo()) {
+            return false;
+        }
+        int move = log.undo();
+        Square mover = opponent(turn);
+        if (move != MoveLog.PASS) {
+            position.move(BitboardPosition.moveTo(move), BitboardPosition.moveFrom(move));
+            for (GameEngineListener listener : listeners) {
+                listener.pieceMoved(mover, BitboardPosition.moveTo(move), BitboardPosition.moveFrom(move));
+            }
+        }
+        turn = mover;
+        winner = findWinner();
+        fireTurnChanged();
+        return true;
+    }
+
+    public boolean redo() {
+        if (!log.canRedo()) {
+            return false;
+        }
+        // loadGame checked the history, checked again in case the log was changed since
+        int move = log.getMove(log.getPly());
+        if (isGameOver() || (move != MoveLog.PASS && !isLegalMove(move))) {
+            throw new IllegalStateException("Illegal move " + move + " to redo at ply " + log.getPly());
+        }
+        log.redo();
+        if (move == MoveLog.PASS) {
+            switchTurn();
+        } else {
+            playMove(move);
+        }
+        return true;
+    }
+
+    // steps from the current ply to the given one through undo/redo, never replaying from the start
+    public void goToPly(int ply) {
+        if (ply < 0 || ply > log.size()) {
+            throw new IllegalArgumentException("Ply " + ply + " outside 0.." + log.size());
+        }
+        while (log.getPly() > ply) {
+            undo();
+        }
+        while (log.getPly() < ply) {
+            redo();
+        }
+    }
+
+    public static Square opponent(Square side) {
+        return side == Square.BLUE ? Square.RED : Square.BLUE;
+    }
+
+    private void playMove(int move) {
+        position.makeMove(move);
+        for (GameEngineListener listener : listeners) {
+            listener.pieceMoved(turn, BitboardPosition.moveFrom(move), BitboardPosition.moveTo(move));
+        }
+        switchTurn();
+    }
+
+    private void switchTurn() {
+        turn = opponent(turn);
+        winner = findWinner();
+        fireTurnChanged();
+        if (winner != null) {
+            for (GameEngineListener listener : listeners) {
+                listener.gameOver(winner);
+            }
+        }
+    }
+
+    private void fireTurnChanged() {
+        for (GameEngineListener listener : listeners) {
+            listener.turnChanged(turn);
+        }
+    }
+
+    // fox wins on reaching the top row, hounds win when the fox has to move and can't
+    private Square findWinner() {
+        if (position.hasFoxReachedTop()) {
+            return Square.BLUE;
+        }
+        if (turn == Square.BLUE && position.isFoxTrapped()) {
+            return Square.RED;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,11 @@
+public interface GameEngineListener {
+
+    // whole position was replaced (new game, loaded game)
+    void positionReset();
+
+    void pieceMoved(Square piece, int from, int to);
+
+    void turnChanged(Square turn);
+
+    void gameOver(Square winner);
+}
@@ -0,0 +1,201 @@
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+// Process-wide counters and latency histograms, cheap enough to stay on in production.
+//
+// Hot paths record into the static fields directly: a LongAdder increment or a LatencyHistogram
+// bucket increment, no locks and no allocation. Histograms ending in .nanos hold durations, the
+// others plain values. start() registers the metrics over JMX and, when GameParams.METRICS_FILE is
+// set, rewrites that file every GameParams.METRICS_DUMP_MILLIS with totals, per-second rates and the
+// percentiles of that interval. The dump and JMX getReport keep separate intervals, so reading the
+// report over JMX doesn't shorten the dump's.
+public class GameMetrics implements GameMetricsMXBean {
+
+    public static final String OBJECT_NAME = "FoxHounds:type=Metrics";
+
+    private static final Map<String, LongAdder> COUNTERS = new LinkedHashMap<>();
+    private static final Map<String, LatencyHistogram> HISTOGRAMS = new LinkedHashMap<>();
+
+    public static final LongAdder CLICKS = counter("model.clicks");
+    public static final LongAdder MOVES = counter("model.moves");
+    public static final LongAdder PASSES = counter("model.passes");
+    public static final LongAdder TIMER_CALLBACKS = counter("timer.callbacks");
+    public static final LongAdder POSITIONS_SHOWN = counter("render.positions");
+    public static final LongAdder PAINTS = counter("render.paints");
+    public static final LongAdder SEARCHES = counter("search.count");
+    public static final LongAdder SEARCH_CACHE_HITS = counter("search.cacheHits");
+    public static final LongAdder SAVES = counter("save.writes");
+    public static final LongAdder LOADS = counter("save.reads");
+    public static final LongAdder IO_FAILURES = counter("save.failures");
+
+    public static final LatencyHistogram ATTEMPT_MOVE_NANOS = histogram("model.attemptMove.nanos");
+    public static final LatencyHistogram MAKE_MOVE_NANOS = histogram("model.makeMove.nanos");
+    public static final LatencyHistogram TIMER_CALLBACK_NANOS = histogram("timer.callback.nanos");
+    // how much later than requested the clock's wake-up arrived
+    public static final LatencyHistogram TIMER_LATENESS_NANOS = histogram("timer.lateness.nanos");
+    public static final LatencyHistogram SHOW_POSITION_NANOS = histogram("render.showPosition.nanos");
+    public static final LatencyHistogram PAINT_NANOS = histogram("render.paint.nanos");
+    public static final LatencyHistogram SEARCH_NANOS = histogram("search.nanos");
+    public static final LatencyHistogram SEARCH_DEPTH = histogram("search.depth");
+    public static final LatencyHistogram SEARCH_NODES = histogram("search.nodes");
+    public static final LatencyHistogram SAVE_NANOS = histogram("save.write.nanos");
+    public static final LatencyHistogram LOAD_NANOS = histogram("save.read.nanos");
+
+    private static final GameMetrics INSTANCE = new GameMetrics();
+    private static boolean started;
+
+    private Interval reportInterval = new Interval();
+    private Interval dumpInterval = new Interval();
+
+    // what was recorded when an interval started, reports cover what came after
+    private static class Interval {
+
+        private long startNanos;
+        private Map<String, Long> counts = new TreeMap<>();
+        private Map<String, long[]> histograms = new TreeMap<>();
+
+        Interval() {
+            restart();
+        }
+
+        void restart() {
+            startNanos = System.nanoTime();
+            for (Map.Entry<String, LongAdder> counter : COUNTERS.entrySet()) {
+                counts.put(counter.getKey(), counter.getValue().sum());
+            }
+            for (Map.Entry<String, LatencyHistogram> histogram : HISTOGRAMS.entrySet()) {
+                histograms.put(histogram.getKey(), histogram.getValue().snapshot());
+            }
+        }
+    }
+
+    private static LongAdder counter(String name) {
+        LongAdder counter = new LongAdder();
+        COUNTERS.put(name, counter);
+        return counter;
+    }
+
+    private static LatencyHistogram histogram(String name) {
+        LatencyHistogram histogram = new LatencyHistogram();
+        HISTOGRAMS.put(name, histogram);
+        return histogram;
+    }
+
+    // duration since a System.nanoTime() reading, recorded into the histogram
+    public static void recordSince(LatencyHistogram histogram, long startNanos) {
+        histogram.record(System.nanoTime() - startNanos);
+    }
+
+    // idempotent, failures only cost the metrics and are reported on stderr
+    public static synchronized void start() {
+        if (started) {
+            return;
+        }
+        started = true;
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(INSTANCE, new ObjectName(OBJECT_NAME));
+        } catch (JMException e) {
+            System.err.println("Metrics not available over JMX: " + e.getMessage());
+        }
+        if (GameParams.METRICS_FILE == null) {
+            return;
+        }
+        Path path = Paths.get(GameParams.METRICS_FILE);
+        ScheduledExecutorService dumper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "metrics-dump");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        dumper.scheduleAtFixedRate(() -> INSTANCE.dump(path),
+                GameParams.METRICS_DUMP_MILLIS, GameParams.METRICS_DUMP_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    public static GameMetrics getInstance() {
+        return INSTANCE;
+    }
+
+    @Override
+    public Map<String, Long> getValues() {
+        Map<String, Long> values = new LinkedHashMap<>();
+        for (Map.Entry<String, LongAdder> counter : COUNTERS.entrySet()) {
+            values.put(counter.getKey(), counter.getValue().sum());
+        }
+        for (Map.Entry<String, LatencyHistogram> histogram : HISTOGRAMS.entrySet()) {
+            LatencyHistogram h = histogram.getValue();
+            values.put(histogram.getKey() + ".count", h.getCount());
+            values.put(histogram.getKey() + ".p50", h.getPercentile(50));
+            values.put(histogram.getKey() + ".p99", h.getPercentile(99));
+            values.put(histogram.getKey() + ".max", h.getMax());
+        }
+        return values;
+    }
+
+    @Override
+    public synchronized String getReport() {
+        return report(reportInterval);
+    }
+
+    @Override
+    public synchronized void reset() {
+        for (LongAdder counter : COUNTERS.values()) {
+            counter.reset();
+        }
+        for (LatencyHistogram histogram : HISTOGRAMS.values()) {
+            histogram.reset();
+        }
+        reportInterval.restart();
+        dumpInterval.restart();
+    }
+
+    // totals, plus rates and percentiles of what happened since the interval started, which restarts
+    private String report(Interval interval) {
+        long now = System.nanoTime();
+        double seconds = Math.max((now - interval.startNanos) / 1e9, 1e-9);
+        StringBuilder report = new StringBuilder();
+        report.append("# counter\ttotal\tper second since last report\n");
+        for (Map.Entry<String, LongAdder> counter : COUNTERS.entrySet()) {
+            long total = counter.getValue().sum();
+            long before = interval.counts.get(counter.getKey());
+            report.append(String.format(Locale.ROOT, "%s\t%d\t%.1f%n", counter.getKey(), total, (total - before) / seconds));
+        }
+        report.append("# histogram\ttotal count\tsince last report: count\tp50\tp90\tp99\tp99.9\tmax\n");
+        for (Map.Entry<String, LatencyHistogram> histogram : HISTOGRAMS.entrySet()) {
+            LatencyHistogram total = histogram.getValue();
+            LatencyHistogram h = total.intervalSince(interval.histograms.get(histogram.getKey()));
+            report.append(String.format(Locale.ROOT, "%s\t%d\t%d\t%d\t%d\t%d\t%d\t%d%n", histogram.getKey(), total.getCount(), h.getCount(),
+                    h.getPercentile(50), h.getPercentile(90), h.getPercentile(99), h.getPercentile(99.9), h.getMax()));
+        }
+        interval.restart();
+        return report.toString();
+    }
+
+    // written next to the target and moved over it, so readers never see half a report
+    private void dump(Path path) {
+        try {
+            Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+            String report;
+            synchronized (this) {
+                report = report(dumpInterval);
+            }
+            Files.writeString(temp, report);
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Could not write " + path + ": " + e.getMessage());
+        }
+    }
+}
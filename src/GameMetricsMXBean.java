@@ -0,0 +1,13 @@
+import java.util.Map;
+
+// JMX view of GameMetrics, registered as FoxHounds:type=Metrics
+public interface GameMetricsMXBean {
+
+    // totals since start or reset: counters by name, histograms as name.count / .p50 / .p99 / .max
+    Map<String, Long> getValues();
+
+    // same format as the dump file, rates and percentiles cover the time since the previous call
+    String getReport();
+
+    void reset();
+}
@@ -1,6 +1,6 @@
-import javafx.animation.Animation;
-import javafx.animation.KeyFrame;
-import javafx.animation.Timeline;
+import javafx.animation.PauseTransition;
+import javafx.application.Platform;
+import javafx.concurrent.Task;
 import javafx.event.ActionEvent;
 import javafx.event.EventHandler;
 import javafx.scene.control.Label;
@@ -8,268 +8,504 @@ import javafx.stage.FileChooser;
 import javafx.util.Duration;
 
 import java.io.*;
-import java.util.ArrayList;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class GameModel {
 
+    // runs only when the shown seconds drop or the turn runs out, not on every frame
     public class TimerDisplayHandler implements EventHandler<ActionEvent> {
 
         private Label display;
-        private int milis;
-        private int seconds;
+        private int shownSeconds;
 
-
-        public TimerDisplayHandler(Label label, int countdownTime) {
+        public TimerDisplayHandler(Label label) {
             this.display = label;
-            reset(countdownTime);
-        }
-
-        public void reset(int countdownTime) {
-            milis = 0;
-            seconds = countdownTime;
-            updateDisplay();
+            shownSeconds = -1;
         }
 
         @Override
         public void handle(ActionEvent arg0) {
-            milis++;
-            if (milis == 1000 && seconds > 0) {
-                milis = 0;
-                seconds--;
-            }
-            if (seconds == 0) {
+            long start = System.nanoTime();
+            GameMetrics.TIMER_CALLBACKS.increment();
+            GameMetrics.TIMER_LATENESS_NANOS.record(start - wakeUpDueNanos);
+            if (clock.isExpired()) {
                 changeTurns();
+            } else {
+                updateDisplay();
+                scheduleWakeUp();
             }
-            updateDisplay();
+            GameMetrics.recordSince(GameMetrics.TIMER_CALLBACK_NANOS, start);
+        }
+
+        public void updateDisplay() {
+            showSeconds(clock.getDisplayedSeconds());
         }
 
-        private void updateDisplay() {
-            display.setText(String.format("%02d", seconds) + "s left");
+        public void showSeconds(int seconds) {
+            if (seconds != shownSeconds) {
+                shownSeconds = seconds;
+                display.setText(String.format("%02d", seconds) + "s left");
+            }
         }
     };
 
     private GameView view;
-    private Square[][] board;
-    private Square turn;
-    private Integer[] selectedSquarePos;
-    private ArrayList<Integer[]> possibleMoves;
+    private GameEngine engine;
+    private ViewUpdater updater;
+    // the game runs in engine on the 8x8 board and in variantGame on any other
+    private BoardVariant board;
+    private VariantGame variantGame;
+    private AlphaBetaSearcher variantSearcher;
+    private int selectedSquare;
+    private int[] possibleMoves;
+    private int possibleMoveCount;
     private TimerDisplayHandler displayHandler;
-    private KeyFrame keyFrame;
-    private Timeline timer;
+    private TurnClock clock;
+    private PauseTransition wakeUp;
+    private long wakeUpDueNanos;
+    private Square computerSide;
+    private ParallelSearcher searcher;
+    private ExecutorService computerPlayer;
+    private int computerRequest;
+    private boolean replaying;
+    private volatile Tablebase tablebase;
+    private ExecutorService fileIo;
+    private Task<?> fileTask;
+
+    // time kept back from the turn limit so the computer's move arrives before the clock runs out
+    private static final int COMPUTER_TIME_MARGIN_MILLIS = 250;
+    private static final int HINT_MILLIS = 1000;
+    // cached search results at least this deep (or proven wins/losses) are played without searching again
+    private static final int REUSE_DEPTH = 16;
+    private static final PositionCache POSITION_CACHE = new PositionCache(GameParams.POSITION_CACHE_ENTRIES);
 
     public GameModel(GameView view) {
         this.view = view;
-        board = new Square[GameParams.ROW_COUNT][GameParams.COL_COUNT];
-        possibleMoves = new ArrayList<>();
-        displayHandler = new TimerDisplayHandler(view.getTimer(), view.getChosenTime());
-        keyFrame = new KeyFrame(Duration.millis(1), displayHandler);
-        timer = new Timeline(keyFrame);
-        timer.setCycleCount(Animation.INDEFINITE);
-
-        resetModel(Square.BLUE);
-    }
-
-    public void resetModel(Square chosenColor) {
-        turn = chosenColor;
-        selectedSquarePos = null;
-        possibleMoves.clear();
-        resetBoard();
-    }
-    private void resetBoard() {
-        for (int row = 0; row < board.length; row = row + 2) {
-            for (int col = 1; col < board[row].length; col = col + 2) {
-                board[row][col] = Square.EMPTY;
-            }
+        engine = new GameEngine();
+        updater = new ViewUpdater();
+        engine.addListener(updater);
+        board = BoardVariant.CLASSIC;
+        possibleMoves = new int[BitboardPosition.MAX_MOVES];
+        useBoard(view.getChosenBoard());
+        clock = TurnClock.perTurn(view.getChosenTime() * 1000L);
+        displayHandler = new TimerDisplayHandler(view.getTimer());
+        displayHandler.updateDisplay();
+        wakeUp = new PauseTransition();
+        wakeUp.setOnFinished(displayHandler);
+        searcher = new ParallelSearcher(GameParams.SEARCH_THREADS);
+        computerPlayer = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "computer-player");
+            thread.setDaemon(true);
+            return thread;
+        });
+        fileIo = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "save-load");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Thread solver = new Thread(() -> tablebase = loadTablebase(), "tablebase-loader");
+        solver.setDaemon(true);
+        solver.start();
+
+        resetModel();
+    }
+
+    // forwards engine and variant game events to the view
+    private class ViewUpdater implements GameEngineListener {
+
+        @Override
+        public void positionReset() {
+            view.clearHighlights();
+            showPosition();
+        }
+
+        @Override
+        public void pieceMoved(Square piece, int from, int to) {
+            showPosition();
         }
-        for (int row = 1; row < board.length; row = row + 2) {
-            for (int col = 0; col < board[row].length; col = col + 2) {
-                board[row][col] = Square.EMPTY;
+
+        @Override
+        public void turnChanged(Square turn) {
+            // while stepping through the history only the final turn is announced
+            if (!replaying) {
+                announceTurn(turn);
             }
         }
-    }
 
-    protected void startNewGame(Square chosenColor) {
-        resetModel(chosenColor);
-        view.resetView();
-        for (int i=1; i<=board.length; i= i+2) {
-            board[0][i] = Square.RED;
-            view.showRedCircle(0,i);
-        }
-        board[7][4] = Square.BLUE;
-        view.showBlueCircle(7,4);
-        view.setLabelText("Your turn " + chosenColor + "!");
-        view.enableTimer();
+        @Override
+        public void gameOver(Square winner) {
+            view.resetView();
+            view.setLabelText("");
+            view.disableTimer();
+            stopTimer();
+            // alerts can't block inside timeline callbacks, so show it once the current event is done
+            Platform.runLater(() -> view.showWinningAlert(winner));
+        }
     }
 
-    private boolean checkTurn(int row, int col) {
-        return board[row][col] == turn;
+    private void showPosition() {
+        if (variantGame != null) {
+            view.showPosition(variantGame.getPosition());
+        } else {
+            view.showPosition(engine.getPosition());
+        }
+    }
+    private Square getTurn() {
+        return variantGame != null ? variantGame.getTurn() : engine.getTurn();
     }
-    private void setSelectedSquarePos(int row, int col) {
-        selectedSquarePos = new Integer[]{row, col};
+    private boolean isGameOver() {
+        return variantGame != null ? variantGame.isGameOver() : engine.isGameOver();
+    }
+    private int getPly() {
+        return variantGame != null ? variantGame.getPly() : engine.getMoveLog().getPly();
+    }
+
+    private void announceTurn(Square turn) {
+        if (turn == computerSide && !isGameOver()) {
+            view.setLabelText("Computer (" + turn + ") is thinking...");
+            requestComputerMove();
+        } else {
+            view.setLabelText("Your turn " + turn + "!" + describePosition(turn));
+        }
     }
-    private void tryToSetEmptySquares(int row, int col) {
+
+    // maps the precomputed file, the first start generates it; without it there are no verdicts
+    private static Tablebase loadTablebase() {
+        Path path = Paths.get(GameParams.TABLEBASE_FILE);
         try {
-            if (board[row][col] == Square.EMPTY) {
-                possibleMoves.add(new Integer[]{row, col});
-            }
-        } catch(ArrayIndexOutOfBoundsException e) {}
-    }
-    private void findPossibleMoves(int row, int col) {
-        if (turn == Square.BLUE) {
-            tryToSetEmptySquares(row + 1, col + 1);
-            tryToSetEmptySquares(row + 1, col - 1);
-            tryToSetEmptySquares(row - 1, col + 1);
-            tryToSetEmptySquares(row - 1, col - 1);
+            return TablebaseFile.openOrGenerate(path, GameParams.SEARCH_THREADS);
+        } catch (IOException e) {
+            System.err.println("No perfect-play verdicts, " + path + " unavailable: " + e.getMessage());
+            System.err.println("Generate it with: java TablebaseFile generate " + path);
+            return null;
+        }
+    }
+
+    // perfect-play verdict for the side to move, empty until the tablebase is ready and on other boards
+    private String describePosition(Square turn) {
+        Tablebase solved = tablebase;
+        if (solved == null || variantGame != null || engine.isGameOver()) {
+            return "";
+        }
+        return " (" + solved.describe(engine.getPosition(), turn) + ")";
+    }
+
+    public GameEngine getEngine() {
+        return engine;
+    }
+
+    public void resetModel() {
+        selectedSquare = -1;
+        possibleMoveCount = 0;
+        computerRequest++;
+        stopSearch();
+    }
+    private void stopSearch() {
+        searcher.stop();
+        if (variantSearcher != null) {
+            variantSearcher.stop();
+        }
+    }
+
+    protected void startNewGame(Square chosenColor) {
+        resetModel();
+        computerSide = view.isComputerOpponentSelected() ? GameEngine.opponent(chosenColor) : null;
+        useBoard(view.getChosenBoard());
+        if (variantGame != null) {
+            variantGame.newGame(chosenColor);
         } else {
-            tryToSetEmptySquares(row + 1, col + 1);
-            tryToSetEmptySquares(row + 1, col - 1);
+            engine.newGame(chosenColor);
+        }
+        resetTimer();
+        view.enableTimer();
+    }
+
+    // the 8x8 board plays in the engine, any other in a new VariantGame; the view only rebuilds
+    // its board when the size changes
+    private void useBoard(BoardVariant chosen) {
+        if (variantGame != null) {
+            variantGame.removeListener(updater);
+            variantGame = null;
+        }
+        if (!chosen.isClassic()) {
+            variantGame = new VariantGame(chosen);
+            variantGame.addListener(updater);
+            if (variantSearcher == null) {
+                variantSearcher = new AlphaBetaSearcher();
+            }
+        }
+        if (!chosen.toString().equals(board.toString())) {
+            board = chosen;
+            possibleMoves = new int[Math.max(BitboardPosition.MAX_MOVES, chosen.getMaxMoves())];
+            view.setBoard(chosen);
+        }
+    }
+
+    private boolean checkTurn(int square) {
+        if (square == -1) {
+            return false;
+        }
+        if (variantGame != null) {
+            return variantGame.getPosition().squareAt(square) == variantGame.getTurn();
         }
+        return engine.pieceAt(BitboardPosition.rowOf(square), BitboardPosition.colOf(square)) == engine.getTurn();
+    }
+    private void findPossibleMoves(int square) {
+        possibleMoveCount = variantGame != null ? variantGame.generateMovesFrom(square, possibleMoves)
+                : engine.generateMovesFrom(square, possibleMoves);
+    }
+    private void highlightSquare(int square) {
+        view.highlightSquare(square);
+    }
+    private void blackenSquare(int square) {
+        view.blackenSquare(square);
     }
     private void highlightPossibleMoves() {
-        for (int i=0; i<possibleMoves.size(); i++) {
-            view.highlightSquare(possibleMoves.get(i)[0],possibleMoves.get(i)[1]);
+        for (int i=0; i<possibleMoveCount; i++) {
+            highlightSquare(BitboardPosition.moveTo(possibleMoves[i]));
         }
-        view.highlightSquare(selectedSquarePos[0],selectedSquarePos[1]);
+        highlightSquare(selectedSquare);
     }
     private void blackenPossibleMoves() {
-        for (int i=0; i<possibleMoves.size(); i++) {
-            view.blackenSquare(possibleMoves.get(i)[0],possibleMoves.get(i)[1]);
+        for (int i=0; i<possibleMoveCount; i++) {
+            blackenSquare(BitboardPosition.moveTo(possibleMoves[i]));
         }
-        if (selectedSquarePos != null) {
-            view.blackenSquare(selectedSquarePos[0],selectedSquarePos[1]);
+        if (selectedSquare != -1) {
+            blackenSquare(selectedSquare);
         }
     }
-    private boolean isPossibleMoveSelected(int row, int col) {
-        for (int i=0; i<possibleMoves.size(); i++) {
-            if (possibleMoves.get(i)[0] == row && possibleMoves.get(i)[1] == col) {
-                return true;
+    // index of the selected move in possibleMoves, -1 if the square is not a possible target
+    private int findSelectedMove(int square) {
+        for (int i=0; i<possibleMoveCount; i++) {
+            if (BitboardPosition.moveTo(possibleMoves[i]) == square) {
+                return i;
             }
         }
-        return false;
+        return -1;
     }
     private void clearSelection() {
         blackenPossibleMoves();
-        selectedSquarePos = null;
-        possibleMoves.clear();
-    }
-
-    private void checkForBlueWin() {
-        for (int i=1; i<=board.length; i= i+2) {
-            if (board[0][i] == Square.BLUE) {
-                view.resetView();
-                view.setLabelText("");
-                view.disableTimer();
-                stopTimer();
-                view.showWinningAlert(Square.BLUE);
-            }
-        }
+        selectedSquare = -1;
+        possibleMoveCount = 0;
     }
 
-    private Integer[] getBluePawnPos() {
-        for (int row = 0; row < board.length; row = row + 1) {
-            for (int col = 0; col < board[row].length; col = col + 1) {
-                if(board[row][col] == Square.BLUE) {
-                    return new Integer[]{row, col};
-                }
-            }
+    private void makeMove(int move) {
+        long start = System.nanoTime();
+        GameMetrics.MOVES.increment();
+        if (variantGame != null) {
+            variantGame.applyMove(move);
+        } else {
+            engine.applyMove(move);
         }
-        return new Integer[]{};
+        clearSelection();
+        resetTimer();
+        GameMetrics.recordSince(GameMetrics.MAKE_MOVE_NANOS, start);
     }
-    private ArrayList<Integer[]> getBluePawnPossibleMoves (int row,int col) {
-        ArrayList<Integer[]> result = new ArrayList<>();
-        try {
-            if (board[row+1][col+1] == Square.EMPTY) {
-                result.add(new Integer[]{row, col});
-            }
-        } catch(ArrayIndexOutOfBoundsException e) {}
-        try {
-            if (board[row+1][col-1] == Square.EMPTY) {
-                result.add(new Integer[]{row, col});
-            }
-        } catch(ArrayIndexOutOfBoundsException e) {}
-        try {
-            if (board[row-1][col+1] == Square.EMPTY) {
-                result.add(new Integer[]{row, col});
-            }
-        } catch(ArrayIndexOutOfBoundsException e) {}
-        try {
-            if (board[row-1][col-1] == Square.EMPTY) {
-                result.add(new Integer[]{row, col});
-            }
-        } catch(ArrayIndexOutOfBoundsException e) {}
-        return result;
-    }
-    private void checkForRedWin() {
-        if (getBluePawnPos().length > 0) {
-            int bluePawnPosX = getBluePawnPos()[0];
-            int bluePawnPosY = getBluePawnPos()[1];
-            if(getBluePawnPossibleMoves(bluePawnPosX, bluePawnPosY).size() == 0) {
-                view.resetView();
-                view.setLabelText("");
-                view.disableTimer();
-                stopTimer();
-                view.showWinningAlert(Square.RED);
-            };
-        }
-
-    }
-
-    private void makeMove(int row, int col) {
-        view.hideCircle(selectedSquarePos[0], selectedSquarePos[1]);
-        board[selectedSquarePos[0]][selectedSquarePos[1]] = Square.EMPTY;
-        if (turn == Square.BLUE) {
-            view.showBlueCircle(row,col);
-            board[row][col] = Square.BLUE;
-            turn = Square.RED;
-            view.setLabelText("Your turn RED!");
-            checkForBlueWin();
+    private void requestComputerMove() {
+        int request = ++computerRequest;
+        Square side = computerSide;
+        long timeLimit = Math.max(view.getChosenTime() * 1000L - COMPUTER_TIME_MARGIN_MILLIS, COMPUTER_TIME_MARGIN_MILLIS);
+        if (variantGame != null) {
+            VariantPosition position = variantGame.getPosition().copy();
+            computerPlayer.submit(() -> {
+                int move = findBestMove(position, side, timeLimit);
+                Platform.runLater(() -> playComputerMove(request, move));
+            });
+            return;
+        }
+        BitboardPosition position = new BitboardPosition(engine.getPosition());
+        computerPlayer.submit(() -> {
+            int move = findBestMove(position, side, timeLimit);
+            Platform.runLater(() -> playComputerMove(request, move));
+        });
+    }
+    // runs on the computer player thread, positions searched deeply enough before are answered from the cache
+    private int findBestMove(BitboardPosition position, Square side, long timeLimit) {
+        PositionCache.Entry cached = POSITION_CACHE.get(position, side);
+        if (cached != null && cached.hasSearchResult()
+                && (cached.getDepth() >= REUSE_DEPTH || Math.abs(cached.getScore()) >= AlphaBetaSearcher.WIN_THRESHOLD)) {
+            GameMetrics.SEARCH_CACHE_HITS.increment();
+            return cached.getBestMove();
+        }
+        long start = System.nanoTime();
+        int move = searcher.findBestMove(position, side, timeLimit);
+        recordSearch(start, searcher.getCompletedDepth(), searcher.getNodes());
+        POSITION_CACHE.putSearchResult(position, side, move, searcher.getBestScore(), searcher.getCompletedDepth());
+        return move;
+    }
+    // the other boards are searched on this thread alone and not cached
+    private int findBestMove(VariantPosition position, Square side, long timeLimit) {
+        long start = System.nanoTime();
+        int move = variantSearcher.findBestMove(position, side, timeLimit);
+        recordSearch(start, variantSearcher.getCompletedDepth(), variantSearcher.getNodes());
+        return move;
+    }
+    private static void recordSearch(long start, int depth, long nodes) {
+        GameMetrics.recordSince(GameMetrics.SEARCH_NANOS, start);
+        GameMetrics.SEARCHES.increment();
+        GameMetrics.SEARCH_DEPTH.record(depth);
+        GameMetrics.SEARCH_NODES.record(nodes);
+    }
+    private void playComputerMove(int request, int move) {
+        if (request != computerRequest || getTurn() != computerSide || isGameOver()) {
+            return;
+        }
+        if (move == -1) {
+            changeTurns();
         } else {
-            view.showRedCircle(row,col);
-            board[row][col] = Square.RED;
-            turn = Square.BLUE;
-            view.setLabelText("Your turn BLUE!");
-            checkForRedWin();
+            makeMove(move);
+        }
+    }
+
+    // selects the suggested piece with only the suggested target highlighted, a click on it plays the move
+    protected void showHint() {
+        if (isGameOver() || getTurn() == computerSide) {
+            return;
+        }
+        int request = ++computerRequest;
+        int ply = getPly();
+        Square side = getTurn();
+        view.setLabelText("Looking for a hint...");
+        if (variantGame != null) {
+            VariantPosition position = variantGame.getPosition().copy();
+            computerPlayer.submit(() -> {
+                int move = findBestMove(position, side, HINT_MILLIS);
+                Platform.runLater(() -> showHintMove(request, ply, move));
+            });
+            return;
+        }
+        BitboardPosition position = new BitboardPosition(engine.getPosition());
+        computerPlayer.submit(() -> {
+            int move = findBestMove(position, side, HINT_MILLIS);
+            Platform.runLater(() -> showHintMove(request, ply, move));
+        });
+    }
+    private void showHintMove(int request, int ply, int move) {
+        // dropped if a ply has been played meanwhile, undo, redo and new games change the request
+        if (request != computerRequest || isGameOver() || getPly() != ply) {
+            return;
         }
+        announceTurn(getTurn());
+        if (move == -1) {
+            return;
+        }
+        clearSelection();
+        selectedSquare = BitboardPosition.moveFrom(move);
+        possibleMoves[0] = move;
+        possibleMoveCount = 1;
+        highlightPossibleMoves();
+    }
+
+    protected void undoMove() {
+        stepThroughHistory(true);
+    }
+    protected void redoMove() {
+        stepThroughHistory(false);
+    }
+    // against the computer a step also covers its reply, so the human is to move afterwards
+    private void stepThroughHistory(boolean back) {
+        if (back ? !canUndo() : !canRedo()) {
+            return;
+        }
+        boolean wasGameOver = isGameOver();
         clearSelection();
+        computerRequest++;
+        stopSearch();
+        replaying = true;
+        try {
+            do {
+                if (variantGame != null) {
+                    if (back) {
+                        variantGame.undo();
+                    } else {
+                        variantGame.redo();
+                    }
+                } else if (back) {
+                    engine.undo();
+                } else {
+                    engine.redo();
+                }
+            } while (getTurn() == computerSide && !isGameOver() && (back ? canUndo() : canRedo()));
+        } finally {
+            replaying = false;
+        }
+        if (isGameOver()) {
+            return;
+        }
+        if (wasGameOver) {
+            showPosition();
+            view.enableTimer();
+        }
         resetTimer();
+        announceTurn(getTurn());
     }
+    private boolean canUndo() {
+        return variantGame != null ? variantGame.canUndo() : engine.getMoveLog().canUndo();
+    }
+    private boolean canRedo() {
+        return variantGame != null ? variantGame.canRedo() : engine.getMoveLog().canRedo();
+    }
+
     protected void attemptMove(int row, int col) {
-        if (selectedSquarePos != null) {
-            if (!isPossibleMoveSelected(row, col)) {
+        long start = System.nanoTime();
+        GameMetrics.CLICKS.increment();
+        handleClick(row, col);
+        GameMetrics.recordSince(GameMetrics.ATTEMPT_MOVE_NANOS, start);
+    }
+    private void handleClick(int row, int col) {
+        if (getTurn() == computerSide) {
+            return;
+        }
+        int square = board.squareIndex(row, col);
+        if (selectedSquare != -1) {
+            int selectedMove = square == -1 ? -1 : findSelectedMove(square);
+            if (selectedMove == -1) {
                 clearSelection();
             } else {
-                makeMove(row, col);
+                makeMove(possibleMoves[selectedMove]);
             }
         }
 
-        if (!checkTurn(row, col)) {
+        if (!checkTurn(square)) {
             return;
         }
 
-        setSelectedSquarePos(row, col);
-        findPossibleMoves(row, col);
+        selectedSquare = square;
+        findPossibleMoves(square);
         highlightPossibleMoves();
     }
 
+    // the game is copied here on the FX thread, the file is written by a SaveTask on the file executor
     protected void exportToFile(String path) {
-        try {
-            FileOutputStream fos = new FileOutputStream(path);
-            DataOutputStream dos = new DataOutputStream(fos);
-
-            for (int row = 0; row < board.length; row = row + 1) {
-                for (int col = 0; col < board[row].length; col = col + 1) {
-                    dos.writeUTF(board[row][col] == null ? "null" : board[row][col].name());
-                }
-                dos.writeUTF("\n");
-            }
-            dos.writeUTF(turn.name());
-            dos.flush();
-            dos.close();
-        } catch (Exception e) {
-            view.showErrorAlert("Saving unsuccessful :(");
+        SaveFormat.SavedGame game;
+        if (variantGame != null) {
+            game = new SaveFormat.SavedGame(
+                    variantGame.copy(),
+                    view.getChosenTime() * 1000,
+                    (int) clock.getRemainingMillis(Square.BLUE),
+                    (int) clock.getRemainingMillis(Square.RED)
+            );
+        } else {
+            game = new SaveFormat.SavedGame(
+                    new BitboardPosition(engine.getPosition()),
+                    engine.getTurn(),
+                    view.getChosenTime() * 1000,
+                    (int) clock.getRemainingMillis(Square.BLUE),
+                    (int) clock.getRemainingMillis(Square.RED),
+                    new MoveLog(engine.getMoveLog())
+            );
         }
+        SaveTask task = new SaveTask(game, Paths.get(path));
+        task.setOnFailed(e -> view.showErrorAlert("Saving unsuccessful :("));
+        runFileTask(task, "Saving...");
     }
     protected void saveGame() {
+        if (isFileTaskRunning()) {
+            return;
+        }
         FileChooser fileChooser = new FileChooser();
         fileChooser.setTitle("Save Game");
         fileChooser.getExtensionFilters().add(
@@ -282,136 +518,153 @@ public class GameModel {
         }
     }
 
-    protected String importFromFile(String path) {
-        try {
-            FileInputStream is = new FileInputStream(path);
-            DataInputStream dis = new DataInputStream(is);
-            StringBuffer file = new StringBuffer();
-            String tmp;
-            while (dis.available()>0) {
-                tmp = dis.readUTF();
-                file.append(tmp + " ");
-            }
-            dis.close();
-            return file.toString();
-        } catch (Exception e) {
-            view.showErrorAlert("Loading unsuccessful :(");
-        }
-        return "";
+    // reads and validates the file on the file executor, the game is applied once it is complete
+    protected void importFromFile(String path) {
+        LoadTask task = new LoadTask(Paths.get(path));
+        task.setOnSucceeded(e -> applyLoadedGame(task.getValue()));
+        task.setOnFailed(e -> view.showErrorAlert(task.getException() instanceof SaveFormat.InvalidFileException
+                ? "Selected file is not valid :(" : "Loading unsuccessful :("));
+        runFileTask(task, "Loading...");
     }
-    protected boolean validateLoadedFile(String file) {
-        String[] parts = file.split("\\s+");
-
-        // 64 board squares + info who's turn
-        if (parts.length != 65) {
-            return false;
-        }
-        int blueCounter = 0, redCounter = 0, emptyCounter = 0;
-
-        for (int i=0; i<parts.length-1; i++) {
-            if ( parts[i].equals("BLUE") ) {
-                blueCounter++;
-            }
-            if ( parts[i].equals("RED") ) {
-                redCounter++;
-            }
-            if ( parts[i].equals("EMPTY") ) {
-                emptyCounter++;
-            }
-        }
 
-        // should be - red: 4 | blue: 1 | empty: 27
-        if (blueCounter != 1 || redCounter != 4 || emptyCounter != 27) {
-            return false;
+    protected void loadGame() {
+        if (isFileTaskRunning()) {
+            return;
         }
-
-        // checking if who's turn element is valid
-        if (!(parts[64].equals("RED") || parts[64].equals("BLUE"))) {
-            return false;
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle("Load Game");
+        fileChooser.getExtensionFilters().add(
+                new FileChooser.ExtensionFilter("Save Files", "*.save")
+        );
+        File selectedFile = fileChooser.showOpenDialog(null);
+        if (selectedFile == null) {
+            return;
         }
-
-        return true;
+        importFromFile(selectedFile.toString());
     }
-    protected Square[][] createBoard(String file) {
-        Square[][] newBoard = new Square[GameParams.ROW_COUNT][GameParams.COL_COUNT];
-        String[] parts = file.split("\\s+");
-        int counter = 0;
-
-        for (int row = 0; row < newBoard.length; row++) {
-            for (int col = 0; col < newBoard[row].length; col++) {
 
-                if (!parts[counter].equals("null")) {
-                    newBoard[row][col] = Enum.valueOf(
-                            Square.class,
-                            parts[counter]
-                    );
-                }
-                counter++;
-            }
+    // "game" or "game ply" of an archive, the game is applied like a loaded save
+    protected void loadArchivedGame() {
+        if (isFileTaskRunning()) {
+            return;
         }
-        return newBoard;
-    }
-    protected Square getTurnFromFile(String file) {
-        String[] parts = file.split("\\s+");
-        return Enum.valueOf(
-                Square.class,
-                parts[64]
-        );
-    }
-
-    protected void loadGame() {
         FileChooser fileChooser = new FileChooser();
-        String fileInString = "";
-        fileChooser.setTitle("Load Game");
+        fileChooser.setTitle("Load From Archive");
         fileChooser.getExtensionFilters().add(
-                new FileChooser.ExtensionFilter("Save Files", "*.save")
+                new FileChooser.ExtensionFilter("Game Archives", "*.fha")
         );
         File selectedFile = fileChooser.showOpenDialog(null);
-        if (selectedFile != null) {
-            fileInString = importFromFile(selectedFile.toString());
+        if (selectedFile == null) {
+            return;
+        }
+        String choice = view.askArchivedGame();
+        if (choice == null) {
+            return;
         }
+        int number;
+        int ply;
+        try {
+            String[] parts = choice.trim().split("\\s+");
+            number = Integer.parseInt(parts[0]);
+            ply = parts.length > 1 ? Integer.parseInt(parts[1]) : -1;
+        } catch (NumberFormatException e) {
+            view.showErrorAlert("Enter a game number and optionally a ply");
+            return;
+        }
+        ArchiveLoadTask task = new ArchiveLoadTask(selectedFile.toPath(), number, ply);
+        task.setOnSucceeded(e -> applyLoadedGame(task.getValue()));
+        task.setOnFailed(e -> view.showErrorAlert(task.getException() instanceof SaveFormat.InvalidFileException
+                ? task.getException().getMessage() : "Loading unsuccessful :("));
+        runFileTask(task, "Loading...");
+    }
 
-        if (validateLoadedFile(fileInString)) {
-            resetModel(getTurnFromFile(fileInString));
-            view.setLabelText("Your turn " + getTurnFromFile(fileInString).name() + "!");
-            view.resetView();
-            board = createBoard(fileInString);
-            for (int row = 0; row < board.length; row++) {
-                for (int col = 0; col < board[row].length; col++) {
-                    if (board[row][col] == Square.RED) {
-                        view.showRedCircle(row,col);
-                    }
-                    if (board[row][col] == Square.BLUE) {
-                        view.showBlueCircle(row,col);
-                    }
-                }
-            }
-            view.enableTimer();
+    // runs in one FX event, so the board, clock and labels change in the same pulse
+    private void applyLoadedGame(SaveFormat.SavedGame game) {
+        resetModel();
+        computerSide = view.isComputerOpponentSelected() ? GameEngine.opponent(game.getTurn()) : null;
+        if (game.getTurnMillis() > 0) {
+            view.setChosenTime(game.getTurnMillis() / 1000);
+        }
+        VariantGame loaded = game.getVariantGame();
+        useBoard(loaded != null ? loaded.getVariant() : BoardVariant.CLASSIC);
+        view.setChosenBoard(board);
+        if (loaded != null) {
+            variantGame.loadGame(loaded);
         } else {
-            view.showErrorAlert("Selected file is not valid :(");
+            engine.loadGame(game.getLog());
         }
+        // a finished game has been announced by the gameOver event
+        if (isGameOver()) {
+            return;
+        }
+        resetTimer();
+        restoreClock(game);
+        view.enableTimer();
+    }
 
+    // one save or load at a time, with its progress and a cancel button shown by the view
+    private void runFileTask(Task<?> task, String text) {
+        fileTask = task;
+        view.showProgress(task, text);
+        fileIo.submit(task);
+    }
+    private boolean isFileTaskRunning() {
+        return fileTask != null && !fileTask.isDone();
+    }
+    private void restoreClock(SaveFormat.SavedGame game) {
+        if (game.getTurnMillis() == 0) {
+            return;
+        }
+        clock.setRemainingMillis(Square.BLUE, game.getRemainingMillis(Square.BLUE));
+        clock.setRemainingMillis(Square.RED, game.getRemainingMillis(Square.RED));
+        displayHandler.updateDisplay();
+        // the wake-up armed by resetTimer was computed from the full turn time
+        scheduleWakeUp();
+    }
 
+    private void scheduleWakeUp() {
+        long nanos = clock.getNanosUntilNextChange();
+        if (nanos < 0) {
+            wakeUp.stop();
+            return;
+        }
+        // rounded up so the shown value has really changed when the transition finishes
+        double millis = Math.max(1, Math.ceil(nanos / 1_000_000.0));
+        wakeUpDueNanos = System.nanoTime() + (long) (millis * 1_000_000);
+        wakeUp.setDuration(Duration.millis(millis));
+        wakeUp.playFromStart();
     }
 
-    protected void startTimer() { timer.play(); }
+    protected void startTimer() {
+        clock.resume();
+        displayHandler.updateDisplay();
+        scheduleWakeUp();
+    }
+    protected void pauseTimer() {
+        clock.pause();
+        wakeUp.stop();
+        displayHandler.updateDisplay();
+    }
     protected void stopTimer() {
-        timer.stop();
-        displayHandler.reset(0);
+        wakeUp.stop();
+        clock.reset(getTurn());
+        displayHandler.showSeconds(0);
     }
     protected void resetTimer() {
-        displayHandler.reset(view.getChosenTime());
+        clock.setTurnMillis(view.getChosenTime() * 1000L);
+        clock.startTurn(getTurn());
+        displayHandler.updateDisplay();
+        scheduleWakeUp();
     }
 
     protected void changeTurns () {
-        if (turn == Square.BLUE) {
-            turn = Square.RED;
-            view.setLabelText("Your turn RED!");
+        GameMetrics.PASSES.increment();
+        if (variantGame != null) {
+            variantGame.passTurn();
         } else {
-            turn = Square.BLUE;
-            view.setLabelText("Your turn BLUE!");
+            engine.passTurn();
         }
-        if (selectedSquarePos != null) {
+        if (selectedSquare != -1) {
             clearSelection();
         }
         resetTimer();
@@ -1,4 +1,17 @@
 public class GameParams {
     public static final int ROW_COUNT = 8;
     public static final int COL_COUNT = 8;
+    // board of the first game, e.g. -Dboard=10x10 or -Dboard=12x12:8; the Board menu switches it for the next game
+    public static final String BOARD = System.getProperty("board", "8x8");
+    // precomputed results, written by the first start that misses it or by: java TablebaseFile generate FoxHounds.tb
+    public static final String TABLEBASE_FILE = "FoxHounds.tb";
+    // threads used by the computer player, override with -DsearchThreads=N
+    public static final int SEARCH_THREADS = Integer.getInteger("searchThreads", Runtime.getRuntime().availableProcessors());
+    // draw the board on a single Canvas instead of one node per square, enable with -DcanvasBoard=true
+    public static final boolean CANVAS_BOARD = Boolean.getBoolean("canvasBoard");
+    // positions whose legal moves and search results are kept, shared by every game in the process
+    public static final int POSITION_CACHE_ENTRIES = 1 << 16;
+    // GameMetrics report rewritten periodically, enable with -DmetricsFile=path
+    public static final String METRICS_FILE = System.getProperty("metricsFile");
+    public static final long METRICS_DUMP_MILLIS = Long.getLong("metricsDumpMillis", 10_000);
 }
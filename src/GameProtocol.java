@@ -0,0 +1,59 @@
+import java.nio.ByteBuffer;
+
+// Wire format shared by GameServer and its clients.
+//
+// Every message is one 4-byte frame: byte type, byte argument, short value. Moves travel as
+// BitboardPosition packed moves (from << 8 | to), sides as 0 BLUE / 1 RED.
+//
+// client -> server
+//   JOIN            wait for an opponent, arg: preferred side (ANY_SIDE for either)
+//   MOVE            value: move, only valid on the sender's turn
+// server -> client
+//   START           arg: your side, value: side that moves first
+//   ACCEPTED        value: your move, it has been played
+//   REJECTED        value: your move, not your turn or illegal
+//   OPPONENT_MOVED  value: the opponent's move
+//   PASSED          arg: side whose turn was skipped (blocked hounds, time ran out)
+//   GAME_OVER       arg: winner, also sent when the opponent disconnects
+public class GameProtocol {
+
+    public static final int FRAME_SIZE = 4;
+
+    public static final byte JOIN = 1;
+    public static final byte MOVE = 2;
+
+    public static final byte START = 16;
+    public static final byte ACCEPTED = 17;
+    public static final byte REJECTED = 18;
+    public static final byte OPPONENT_MOVED = 19;
+    public static final byte PASSED = 20;
+    public static final byte GAME_OVER = 21;
+
+    public static final byte BLUE_SIDE = 0;
+    public static final byte RED_SIDE = 1;
+    public static final byte ANY_SIDE = 2;
+
+    public static void putFrame(ByteBuffer buffer, byte type, int arg, int value) {
+        buffer.put(type);
+        buffer.put((byte) arg);
+        buffer.putShort((short) value);
+    }
+
+    // frame fields of the frame starting at the buffer's position, see putFrame
+    public static byte frameType(ByteBuffer buffer) {
+        return buffer.get(buffer.position());
+    }
+    public static int frameArg(ByteBuffer buffer) {
+        return buffer.get(buffer.position() + 1);
+    }
+    public static int frameValue(ByteBuffer buffer) {
+        return buffer.getShort(buffer.position() + 2) & 0xFFFF;
+    }
+
+    public static byte sideCode(Square side) {
+        return side == Square.BLUE ? BLUE_SIDE : RED_SIDE;
+    }
+    public static Square sideOf(int code) {
+        return code == BLUE_SIDE ? Square.BLUE : Square.RED;
+    }
+}
@@ -0,0 +1,384 @@
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+
+// Headless multiplayer server: pairs up clients and referees their games with GameEngine.
+//
+// A single thread runs a non-blocking selector loop over all connections, so games need no locking.
+// Frames (see GameProtocol) are read in batches, and replies are queued per connection and written
+// once per loop iteration instead of once per message. Blocked hounds pass automatically.
+//
+// Turn clocks are server-side: every game has one timer in a shared TimingWheel, re-armed after each
+// ply, and a turn that runs out is forfeited like changeTurns does in the desktop game. The loop
+// sleeps in select() only until the next timer can be due.
+//
+// Clients waiting for an opponent queue per preferred side and are paired in the order they joined.
+// A connection whose frame makes the server throw is dropped, the other games carry on.
+//
+// usage: java GameServer [port] [turnMillis, 0 for no clock]
+public class GameServer {
+
+    public static final int DEFAULT_PORT = 7457;
+    public static final int DEFAULT_TURN_MILLIS = 10_000;
+    private static final long TICK_NANOS = 1_000_000L;
+    private static final int READ_BUFFER_SIZE = 256;
+    private static final int INITIAL_WRITE_BUFFER_SIZE = 64;
+
+    private Selector selector;
+    private ServerSocketChannel serverChannel;
+    private volatile boolean running;
+    // clients waiting for an opponent, one queue per preferred side, ANY_SIDE included
+    private ArrayList<ArrayDeque<Connection>> waiting;
+    private ArrayList<Connection> pendingWrites;
+    private int gamesStarted;
+    private int liveGames;
+    private long turnNanos;
+    private TimingWheel turnClocks;
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        int turnMillis = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_TURN_MILLIS;
+        GameServer server = new GameServer(port, turnMillis);
+        System.out.println("listening on port " + server.getPort());
+        server.run();
+    }
+
+    public GameServer(int port, int turnMillis) throws IOException {
+        turnNanos = turnMillis * 1_000_000L;
+        turnClocks = new TimingWheel(TICK_NANOS, System.nanoTime());
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(port), 1024);
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        waiting = new ArrayList<>();
+        for (int side = 0; side <= GameProtocol.ANY_SIDE; side++) {
+            waiting.add(new ArrayDeque<>());
+        }
+        pendingWrites = new ArrayList<>();
+    }
+
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+    public int getLiveGames() {
+        return liveGames;
+    }
+    public int getGamesStarted() {
+        return gamesStarted;
+    }
+
+    // can be called from another thread, run() returns after the current iteration
+    public void stop() {
+        running = false;
+        selector.wakeup();
+    }
+
+    public void run() throws IOException {
+        running = true;
+        try {
+            while (running) {
+                long wait = turnClocks.getNanosUntilNextEvent(System.nanoTime());
+                if (wait < 0) {
+                    selector.select();
+                } else if (wait < 1_000_000) {
+                    selector.selectNow();
+                } else {
+                    selector.select(wait / 1_000_000);
+                }
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                        continue;
+                    }
+                    Connection connection = (Connection) key.attachment();
+                    try {
+                        if (key.isReadable()) {
+                            read(connection);
+                        }
+                        if (key.isValid() && key.isWritable()) {
+                            flush(connection);
+                        }
+                    } catch (RuntimeException e) {
+                        // a bug hit by one client's frames must not stop the loop for everyone
+                        System.err.println("Dropping " + connection.channel.socket().getRemoteSocketAddress() + ": " + e);
+                        disconnect(connection);
+                    }
+                }
+                turnClocks.advance(System.nanoTime());
+                flushPending();
+            }
+        } finally {
+            for (SelectionKey key : selector.keys()) {
+                key.channel().close();
+            }
+            selector.close();
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = serverChannel.accept()) != null) {
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            Connection connection = new Connection(channel);
+            connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+        }
+    }
+
+    private void read(Connection connection) {
+        int count;
+        try {
+            count = connection.channel.read(connection.in);
+        } catch (IOException e) {
+            count = -1;
+        }
+        if (count == -1) {
+            disconnect(connection);
+            return;
+        }
+        ByteBuffer in = connection.in;
+        in.flip();
+        while (in.remaining() >= GameProtocol.FRAME_SIZE && connection.key.isValid()) {
+            handleFrame(connection, GameProtocol.frameType(in), GameProtocol.frameArg(in), GameProtocol.frameValue(in));
+            in.position(in.position() + GameProtocol.FRAME_SIZE);
+        }
+        in.compact();
+    }
+
+    private void handleFrame(Connection connection, byte type, int arg, int value) {
+        switch (type) {
+            case GameProtocol.JOIN:
+                join(connection, arg);
+                break;
+            case GameProtocol.MOVE:
+                move(connection, value);
+                break;
+            default:
+                // a client that doesn't speak the protocol is dropped
+                disconnect(connection);
+        }
+    }
+
+    private void join(Connection connection, int preferredSide) {
+        if (connection.game != null || connection.waiting || preferredSide < 0 || preferredSide > GameProtocol.ANY_SIDE) {
+            send(connection, GameProtocol.REJECTED, 0, 0);
+            return;
+        }
+        Connection opponent = findOpponent(preferredSide);
+        if (opponent == null) {
+            waiting.get(preferredSide).add(connection);
+            connection.preferredSide = preferredSide;
+            connection.waiting = true;
+            return;
+        }
+
+        Connection fox;
+        Connection hounds;
+        if (preferredSide == GameProtocol.BLUE_SIDE || opponent.preferredSide == GameProtocol.RED_SIDE) {
+            fox = connection;
+            hounds = opponent;
+        } else {
+            fox = opponent;
+            hounds = connection;
+        }
+        // the side moving first alternates between games
+        Square firstTurn = gamesStarted % 2 == 0 ? Square.BLUE : Square.RED;
+        ServerGame game = new ServerGame(fox, hounds, firstTurn);
+        game.turnTimer = new TimingWheel.Timer(() -> turnExpired(game));
+        gamesStarted++;
+        liveGames++;
+        send(fox, GameProtocol.START, GameProtocol.BLUE_SIDE, GameProtocol.sideCode(firstTurn));
+        send(hounds, GameProtocol.START, GameProtocol.RED_SIDE, GameProtocol.sideCode(firstTurn));
+        startTurn(game);
+    }
+
+    private Connection findOpponent(int preferredSide) {
+        int[] candidates = preferredSide == GameProtocol.BLUE_SIDE ? new int[]{GameProtocol.RED_SIDE, GameProtocol.ANY_SIDE}
+                : preferredSide == GameProtocol.RED_SIDE ? new int[]{GameProtocol.BLUE_SIDE, GameProtocol.ANY_SIDE}
+                : new int[]{GameProtocol.ANY_SIDE, GameProtocol.BLUE_SIDE, GameProtocol.RED_SIDE};
+        for (int side : candidates) {
+            Connection opponent = waiting.get(side).poll();
+            if (opponent != null) {
+                opponent.waiting = false;
+                return opponent;
+            }
+        }
+        return null;
+    }
+
+    private void move(Connection connection, int move) {
+        ServerGame game = connection.game;
+        if (game == null || game.engine.getTurn() != connection.side || !game.engine.isLegalMove(move)) {
+            send(connection, GameProtocol.REJECTED, 0, move);
+            return;
+        }
+        game.engine.applyMove(move);
+        send(connection, GameProtocol.ACCEPTED, 0, move);
+        send(game.opponentOf(connection), GameProtocol.OPPONENT_MOVED, 0, move);
+        startTurn(game);
+    }
+
+    // the side to move ran out of time and loses its turn
+    private void turnExpired(ServerGame game) {
+        if (game.fox.game != game) {
+            return;
+        }
+        passTurn(game);
+        startTurn(game);
+    }
+
+    // after every ply: skip blocked hounds, finish the game or start the next turn's clock
+    private void startTurn(ServerGame game) {
+        passBlockedHounds(game);
+        if (game.engine.isGameOver()) {
+            endGame(game, game.engine.getWinner());
+        } else if (turnNanos > 0) {
+            turnClocks.schedule(game.turnTimer, System.nanoTime() + turnNanos);
+        }
+    }
+
+    // passes the turn of the side to move and tells both players, used for blocked hounds
+    // and turns that ran out of time
+    private void passTurn(ServerGame game) {
+        Square side = game.engine.getTurn();
+        game.engine.passTurn();
+        send(game.fox, GameProtocol.PASSED, GameProtocol.sideCode(side), 0);
+        send(game.hounds, GameProtocol.PASSED, GameProtocol.sideCode(side), 0);
+    }
+
+    private void passBlockedHounds(ServerGame game) {
+        if (!game.engine.isGameOver() && game.engine.getTurn() == Square.RED && !game.engine.getPosition().canHoundsMove()) {
+            passTurn(game);
+        }
+    }
+
+    private void endGame(ServerGame game, Square winner) {
+        send(game.fox, GameProtocol.GAME_OVER, GameProtocol.sideCode(winner), 0);
+        send(game.hounds, GameProtocol.GAME_OVER, GameProtocol.sideCode(winner), 0);
+        game.fox.game = null;
+        game.hounds.game = null;
+        turnClocks.cancel(game.turnTimer);
+        liveGames--;
+    }
+
+    private void disconnect(Connection connection) {
+        if (connection.game != null) {
+            ServerGame game = connection.game;
+            endGame(game, GameEngine.opponent(connection.side));
+        }
+        if (connection.waiting) {
+            waiting.get(connection.preferredSide).remove(connection);
+            connection.waiting = false;
+        }
+        connection.key.cancel();
+        try {
+            connection.channel.close();
+        } catch (IOException e) {
+            // already gone
+        }
+    }
+
+    private void send(Connection connection, byte type, int arg, int value) {
+        if (!connection.key.isValid()) {
+            return;
+        }
+        if (connection.out.remaining() < GameProtocol.FRAME_SIZE) {
+            ByteBuffer grown = ByteBuffer.allocate(connection.out.capacity() * 2);
+            connection.out.flip();
+            grown.put(connection.out);
+            connection.out = grown;
+        }
+        if (connection.out.position() == 0 && !connection.writeRegistered) {
+            pendingWrites.add(connection);
+        }
+        GameProtocol.putFrame(connection.out, type, arg, value);
+    }
+
+    private void flushPending() {
+        // a failed write ends a game and queues more frames, so the list can grow while flushing
+        for (int i = 0; i < pendingWrites.size(); i++) {
+            Connection connection = pendingWrites.get(i);
+            if (!connection.writeRegistered) {
+                flush(connection);
+            }
+        }
+        pendingWrites.clear();
+    }
+
+    // writes what the socket takes now, the rest waits for OP_WRITE
+    private void flush(Connection connection) {
+        if (!connection.key.isValid()) {
+            return;
+        }
+        connection.out.flip();
+        try {
+            connection.channel.write(connection.out);
+        } catch (IOException e) {
+            connection.out.clear();
+            disconnect(connection);
+            return;
+        }
+        connection.out.compact();
+        boolean blocked = connection.out.position() > 0;
+        if (blocked != connection.writeRegistered) {
+            connection.writeRegistered = blocked;
+            connection.key.interestOps(blocked ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+        }
+    }
+
+    private static class Connection {
+
+        private SocketChannel channel;
+        private SelectionKey key;
+        private ByteBuffer in;
+        private ByteBuffer out;
+        private boolean writeRegistered;
+        private int preferredSide;
+        private boolean waiting;
+        private ServerGame game;
+        private Square side;
+
+        Connection(SocketChannel channel) {
+            this.channel = channel;
+            in = ByteBuffer.allocate(READ_BUFFER_SIZE);
+            out = ByteBuffer.allocate(INITIAL_WRITE_BUFFER_SIZE);
+        }
+    }
+
+    private static class ServerGame {
+
+        private GameEngine engine;
+        private Connection fox;
+        private Connection hounds;
+        private TimingWheel.Timer turnTimer;
+
+        ServerGame(Connection fox, Connection hounds, Square firstTurn) {
+            this.fox = fox;
+            this.hounds = hounds;
+            fox.game = this;
+            fox.side = Square.BLUE;
+            hounds.game = this;
+            hounds.side = Square.RED;
+            engine = new GameEngine();
+            engine.newGame(firstTurn);
+        }
+
+        Connection opponentOf(Connection connection) {
+            return connection == fox ? hounds : fox;
+        }
+    }
+}
@@ -1,6 +1,7 @@
 import javafx.application.Application;
 import javafx.application.Platform;
 import javafx.collections.FXCollections;
+import javafx.concurrent.Task;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
@@ -19,19 +20,27 @@ public class GameView extends Application {
         launch(args);
     }
 
-    private BoardSquare[][] fields;
+    private BoardRenderer board;
     private Label label;
     private GameModel model;
     private Label timer;
     private ChoiceBox<Integer> timeChooser;
     private Button startButton;
     private Button stopButton;
+    private CheckMenuItem computerOpponent;
+    private Menu boardMenu;
+    private ToggleGroup boardChoice;
+    private BoardVariant shownBoard;
+    private HBox progressBox;
+    private Label progressLabel;
+    private ProgressBar progressBar;
+    private Button cancelButton;
 
     @Override
     public void start(Stage stage) throws Exception {
-        fields = new BoardSquare[GameParams.ROW_COUNT][GameParams.COL_COUNT];
         Scene scene = new Scene(createView(), 490, 670);
         model = new GameModel(this);
+        GameMetrics.start();
         stage.setTitle("Fox and Hounds");
         stage.setScene(scene);
         stage.show();
@@ -39,7 +48,7 @@ public class GameView extends Application {
 
     private VBox createView() {
         VBox mainView = new VBox();
-        mainView.getChildren().addAll(createMenuBox(), createInfoBox(), createBoard(), createTimerBox());
+        mainView.getChildren().addAll(createMenuBox(), createInfoBox(), createBoard().getNode(), createTimerBox());
         return mainView;
     }
 
@@ -48,21 +57,30 @@ public class GameView extends Application {
         MenuItem newGame = new MenuItem("New Game");
         MenuItem saveGame = new MenuItem("Save Game");
         MenuItem loadGame = new MenuItem("Load Game");
+        MenuItem loadArchived = new MenuItem("Load From Archive");
+        MenuItem undoMove = new MenuItem("Undo Move");
+        MenuItem redoMove = new MenuItem("Redo Move");
+        MenuItem hint = new MenuItem("Show Hint");
         MenuItem exit = new MenuItem("Exit");
+        computerOpponent = new CheckMenuItem("Play vs Computer");
 
         newGame.setOnAction(e -> showNewGameDialog());
         saveGame.setOnAction(e -> model.saveGame());
         loadGame.setOnAction(e -> model.loadGame());
+        loadArchived.setOnAction(e -> model.loadArchivedGame());
+        undoMove.setOnAction(e -> model.undoMove());
+        redoMove.setOnAction(e -> model.redoMove());
+        hint.setOnAction(e -> model.showHint());
         exit.setOnAction(e -> {
             Platform.exit();
             System.exit(0);
         });
 
         Menu menu = new Menu("Game");
-        menu.getItems().addAll(newGame, saveGame, loadGame, exit);
+        menu.getItems().addAll(newGame, saveGame, loadGame, loadArchived, undoMove, redoMove, hint, computerOpponent, exit);
 
         MenuBar menuBar = new MenuBar();
-        menuBar.getMenus().add(menu);
+        menuBar.getMenus().addAll(menu, createBoardMenu());
 
         VBox menuBox = new VBox();
 
@@ -70,6 +88,31 @@ public class GameView extends Application {
         return menuBox;
     }
 
+    // the chosen board is used from the next new game on
+    private Menu createBoardMenu() {
+        boardMenu = new Menu("Board");
+        boardChoice = new ToggleGroup();
+        addBoardItem(BoardVariant.CLASSIC);
+        addBoardItem(BoardVariant.parse("10x10"));
+        addBoardItem(BoardVariant.parse("12x12"));
+        BoardVariant first = BoardVariant.CLASSIC;
+        try {
+            first = BoardVariant.parse(GameParams.BOARD);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage() + ", playing on the 8x8 board");
+        }
+        setChosenBoard(first);
+        return boardMenu;
+    }
+    private RadioMenuItem addBoardItem(BoardVariant variant) {
+        RadioMenuItem item = new RadioMenuItem(variant.getRows() + "x" + variant.getCols()
+                + ", " + variant.getHoundCount() + " hounds");
+        item.setUserData(variant);
+        item.setToggleGroup(boardChoice);
+        boardMenu.getItems().add(item);
+        return item;
+    }
+
     private VBox createInfoBox() {
         VBox infoBox = new VBox();
         label = new Label();
@@ -77,31 +120,27 @@ public class GameView extends Application {
         label.setFont(Font.font("Roboto", 24));
         infoBox.setPadding(new Insets(35, 25, 10, 25));
         infoBox.setAlignment(Pos.CENTER);
-        infoBox.getChildren().add(label);
+        infoBox.getChildren().addAll(label, createProgressBox());
         return infoBox;
     }
 
-    private GridPane createBoard() {
-        GridPane board = new GridPane();
-        board.setAlignment(Pos.CENTER);
-        board.setPadding(new Insets(25));
-        for (int row = 0; row < GameParams.ROW_COUNT; row++) {
-            for (int col = 0; col < GameParams.COL_COUNT; col++) {
-                board.add(createBoardSquare(row, col), col, row);
-            }
-        }
-
-        for (int row = 0; row < GameParams.ROW_COUNT; row++) {
-            RowConstraints constraints = new RowConstraints();
-            constraints.setPercentHeight(20);
-            board.getRowConstraints().add(constraints);
-        }
+    // shown while a save or load runs in the background
+    private HBox createProgressBox() {
+        progressLabel = new Label();
+        progressBar = new ProgressBar();
+        cancelButton = new Button("Cancel");
+        progressBox = new HBox();
+        progressBox.setSpacing(10);
+        progressBox.setAlignment(Pos.CENTER);
+        progressBox.getChildren().addAll(progressLabel, progressBar, cancelButton);
+        progressBox.setVisible(false);
+        progressBox.managedProperty().bind(progressBox.visibleProperty());
+        return progressBox;
+    }
 
-        for (int col = 0; col < GameParams.COL_COUNT; col++) {
-            ColumnConstraints constraints = new ColumnConstraints();
-            constraints.setPercentWidth(20);
-            board.getColumnConstraints().add(constraints);
-        }
+    private BoardRenderer createBoard() {
+        board = GameParams.CANVAS_BOARD ? new CanvasBoardRenderer() : new NodeBoardRenderer();
+        board.setClickHandler((row, col) -> model.attemptMove(row, col));
         return board;
     }
 
@@ -134,7 +173,7 @@ public class GameView extends Application {
             model.startTimer();
         });
         stopButton.setOnAction(e -> {
-            model.stopTimer();
+            model.pauseTimer();
         });
 
         VBox root = new VBox();
@@ -145,62 +184,71 @@ public class GameView extends Application {
         return root;
     }
 
-    private Color getSquareBackgroundColor(int row, int col) {
-        if ((row % 2 == 0 && col % 2 != 0) || (row % 2 != 0 && col % 2 == 0)) {
-            return Color.DARKGRAY;
-        } else {
-            return Color.LIGHTGRAY;
-        }
+    protected BoardVariant getChosenBoard() {
+        return (BoardVariant) boardChoice.getSelectedToggle().getUserData();
     }
 
-    private StackPane createBoardSquare(int row, int col) {
-
-        StackPane stackPane = new StackPane();
-
-        BoardSquare square = new BoardSquare(getSquareBackgroundColor(row, col));
-        fields[row][col] = square;
-        square.setCircleBlue();
+    protected void setChosenBoard(BoardVariant variant) {
+        for (MenuItem item : boardMenu.getItems()) {
+            if (item.getUserData().toString().equals(variant.toString())) {
+                ((RadioMenuItem) item).setSelected(true);
+                return;
+            }
+        }
+        addBoardItem(variant).setSelected(true);
+    }
 
-        stackPane.setOnMouseClicked(e -> {
-            model.attemptMove(row, col);
-        });
-        stackPane.getChildren().addAll(square);
-        return stackPane;
+    // squares are numbered on this board from now on
+    protected void setBoard(BoardVariant variant) {
+        shownBoard = variant;
+        board.setBoard(variant);
     }
 
-    protected void highlightSquare(int row, int col) {
-        fields[row][col].highlight();
+    protected void highlightSquare(int square) {
+        board.setHighlighted(square, true);
     }
 
-    protected void blackenSquare(int row, int col) {
-        fields[row][col].blacken();
+    protected void blackenSquare(int square) {
+        board.setHighlighted(square, false);
     }
 
-    protected void showRedCircle(int row, int col) {
-        fields[row][col].setCircleRed();
-        fields[row][col].showCircle();
+    protected void clearHighlights() {
+        board.clearHighlights();
     }
 
-    protected void showBlueCircle(int row, int col) {
-        fields[row][col].setCircleBlue();
-        fields[row][col].showCircle();
+    protected void showPosition(BitboardPosition position) {
+        long start = System.nanoTime();
+        GameMetrics.POSITIONS_SHOWN.increment();
+        board.showPosition(position);
+        GameMetrics.recordSince(GameMetrics.SHOW_POSITION_NANOS, start);
     }
 
-    protected void hideCircle(int row, int col) {
-        fields[row][col].hideCircle();
+    protected void showPosition(VariantPosition position) {
+        long start = System.nanoTime();
+        GameMetrics.POSITIONS_SHOWN.increment();
+        board.showPosition(position);
+        GameMetrics.recordSince(GameMetrics.SHOW_POSITION_NANOS, start);
     }
 
     protected void resetView() {
-        for (int row = 0; row < GameParams.ROW_COUNT; row++) {
-            for (int col = 0; col < GameParams.COL_COUNT; col++) {
-                hideCircle(row, col);
-                if (fields[row][col].isHighlighted()) {
-                    fields[row][col].blacken();
-                }
-            }
+        board.clearHighlights();
+        if (shownBoard == null || shownBoard.isClassic()) {
+            board.showPosition(new BitboardPosition());
+        } else {
+            VariantPosition position = VariantPosition.create(shownBoard);
+            position.setStartPosition();
+            board.showPosition(position);
         }
     }
 
+    // follows the task until it finishes, fails or is cancelled
+    protected void showProgress(Task<?> task, String text) {
+        progressLabel.setText(text);
+        progressBar.progressProperty().bind(task.progressProperty());
+        cancelButton.setOnAction(e -> task.cancel());
+        progressBox.visibleProperty().bind(task.runningProperty());
+    }
+
     protected void setLabelText(String text) {
         this.label.setText(text);
     }
@@ -221,6 +269,15 @@ public class GameView extends Application {
         alert.showAndWait();
     }
 
+    // null when the dialog is cancelled
+    protected String askArchivedGame() {
+        TextInputDialog dialog = new TextInputDialog("0");
+        dialog.setTitle("Load From Archive");
+        dialog.setHeaderText("Game number, optionally followed by a ply");
+        dialog.setContentText("Game [ply]:");
+        return dialog.showAndWait().orElse(null);
+    }
+
     private void showNewGameDialog() {
         List<Square> choices = new ArrayList<>();
         choices.add(Square.BLUE);
@@ -241,6 +298,17 @@ public class GameView extends Application {
         return timeChooser.getSelectionModel().getSelectedItem();
     }
 
+    protected boolean isComputerOpponentSelected() {
+        return computerOpponent.isSelected();
+    }
+
+    // selects the given turn time if it is one of the offered choices
+    protected void setChosenTime(int seconds) {
+        if (timeChooser.getItems().contains(seconds)) {
+            timeChooser.setValue(seconds);
+        }
+    }
+
     protected Label getTimer() {
         return timer;
     }
@@ -0,0 +1,362 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+// Microbenchmarks for the hot paths: move generation, win detection, save/load and search, plus move
+// generation and search on the larger BoardVariant boards for each position representation.
+//
+// Each benchmark runs a few untimed warmup rounds so the JIT has compiled it, then timed rounds of
+// roughly ROUND_MILLIS each; the median ns per operation is reported. Results are consumed into a
+// sink so the JIT can't drop the work. With --baseline the numbers are compared to a saved run and
+// anything slower than the tolerance is reported as a regression (exit code 1). Baselines only
+// compare runs on the same machine: benchmarks/baseline.tsv was recorded on the reference machine
+// named in its header, save your own with --save to compare on a different one. gradle jmh runs the
+// same cases under JMH (jmh/hotpath/HotPathJmh.java).
+//
+// usage: java HotPathBenchmark [--rounds N] [--save file] [--baseline file] [--tolerance percent]
+public class HotPathBenchmark {
+
+    private static final long SEED = 20231017L;
+    private static final int POSITION_COUNT = 256;
+    private static final int WARMUP_ROUNDS = 5;
+    private static final long ROUND_MILLIS = 500;
+    private static final int SEARCH_DEPTH = 12;
+    // small enough that clearing it between runs is noise next to the search
+    private static final int SEARCH_TABLE_BITS = 16;
+    private static final String[] VARIANTS = {"8x8", "10x10", "12x12"};
+    private static final int VARIANT_SEARCH_DEPTH = 8;
+
+    private static long sink;
+
+    private BitboardPosition[] positions;
+    private Square[] turns;
+    private byte[] savedGame;
+    private SaveFormat.SavedGame game;
+    private AlphaBetaSearcher searcher;
+
+    public static void main(String[] args) throws IOException {
+        int rounds = 10;
+        Path save = null;
+        Path baseline = null;
+        double tolerance = 25;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--rounds":
+                    rounds = Integer.parseInt(args[++i]);
+                    break;
+                case "--save":
+                    save = Paths.get(args[++i]);
+                    break;
+                case "--baseline":
+                    baseline = Paths.get(args[++i]);
+                    break;
+                case "--tolerance":
+                    tolerance = Double.parseDouble(args[++i]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        HotPathBenchmark benchmark = new HotPathBenchmark();
+        Map<String, LongSupplier> benchmarks = benchmark.createBenchmarks();
+        Map<String, Double> results = new HashMap<>();
+        List<String> names = new ArrayList<>(benchmarks.keySet());
+        for (String name : names) {
+            results.put(name, measure(benchmarks.get(name), rounds));
+        }
+
+        Map<String, Double> reference = baseline == null ? new HashMap<>() : readResults(baseline);
+        boolean regressed = false;
+        System.out.println("benchmark\tns/op\tops/s\tvs baseline");
+        for (String name : names) {
+            double nanos = results.get(name);
+            String comparison = "";
+            Double before = reference.get(name);
+            if (before != null) {
+                double change = 100 * (nanos / before - 1);
+                comparison = String.format(Locale.ROOT, "%+.1f%%", change);
+                if (change > tolerance) {
+                    comparison += " REGRESSION";
+                    regressed = true;
+                }
+            }
+            System.out.println(String.format(Locale.ROOT, "%s\t%.2f\t%.0f\t%s", name, nanos, 1e9 / nanos, comparison));
+        }
+        if (save != null) {
+            writeResults(save, names, results);
+        }
+        System.out.println("(sink " + sink + ")");
+        if (regressed) {
+            System.exit(1);
+        }
+    }
+
+    // the benchmarks by name, each call runs one batch and returns how many operations that was;
+    // the JMH build in jmh/ runs the same cases
+    public static Map<String, LongSupplier> createCases() throws IOException {
+        return new HotPathBenchmark().createBenchmarks();
+    }
+
+    private Map<String, LongSupplier> createBenchmarks() throws IOException {
+        createPositions();
+        game = createSavedGame();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SaveFormat.write(game, out);
+        savedGame = out.toByteArray();
+        searcher = new AlphaBetaSearcher(SEARCH_TABLE_BITS);
+
+        Map<String, LongSupplier> benchmarks = new LinkedHashMap<>();
+        int[] moves = new int[BitboardPosition.MAX_MOVES];
+        // what the view does on a click: targets of every piece of the side to move
+        benchmarks.put("movegen.movesFrom", () -> {
+            long count = 0;
+            for (int i = 0; i < positions.length; i++) {
+                BitboardPosition position = positions[i];
+                int pieces = turns[i] == Square.BLUE ? position.getFox() : position.getHounds();
+                while (pieces != 0) {
+                    int square = Integer.numberOfTrailingZeros(pieces);
+                    pieces &= pieces - 1;
+                    count += position.generateMovesFrom(square, moves);
+                }
+            }
+            sink += count;
+            return positions.length;
+        });
+        benchmarks.put("movegen.sideToMove", () -> {
+            long count = 0;
+            for (int i = 0; i < positions.length; i++) {
+                count += turns[i] == Square.BLUE ? positions[i].generateFoxMoves(moves) : positions[i].generateHoundMoves(moves);
+            }
+            sink += count;
+            return positions.length;
+        });
+        // the checks run after every move: fox on the top row, fox trapped, where the fox is
+        benchmarks.put("win.detection", () -> {
+            long count = 0;
+            for (BitboardPosition position : positions) {
+                if (position.hasFoxReachedTop() || position.isFoxTrapped()) {
+                    count++;
+                }
+                count += position.getFoxSquare();
+            }
+            sink += count;
+            return positions.length;
+        });
+        benchmarks.put("save.write", () -> {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream(savedGame.length);
+            try {
+                SaveFormat.write(game, buffer);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            sink += buffer.size();
+            return 1;
+        });
+        // includes the checksum and the replay of the move history that validates it
+        benchmarks.put("save.read", () -> {
+            try {
+                sink += SaveFormat.read(new ByteArrayInputStream(savedGame)).getLog().size();
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            return 1;
+        });
+        // one operation is one searched node
+        benchmarks.put("search.node", () -> {
+            searcher.clearTable();
+            sink += searcher.findBestMove(positions[0], turns[0], Long.MAX_VALUE, 1, SEARCH_DEPTH);
+            return searcher.getNodes();
+        });
+        for (String spec : VARIANTS) {
+            BoardVariant variant = BoardVariant.parse(spec);
+            VariantPosition[] variantPositions = createVariantPositions(variant);
+            if (variant.getSquareCount() <= 64) {
+                addVariantBenchmarks(benchmarks, "variant." + variant + ".long", convert(variantPositions, () -> new LongVariantPosition(variant)));
+            }
+            addVariantBenchmarks(benchmarks, "variant." + variant + ".multiword", convert(variantPositions, () -> new MultiWordVariantPosition(variant)));
+        }
+        return benchmarks;
+    }
+
+    private void addVariantBenchmarks(Map<String, LongSupplier> benchmarks, String prefix, VariantPosition[] variantPositions) {
+        int[] moves = new int[variantPositions[0].getVariant().getMaxMoves()];
+        benchmarks.put(prefix + ".movegen", () -> {
+            long count = 0;
+            for (int i = 0; i < variantPositions.length; i++) {
+                count += turns[i] == Square.BLUE ? variantPositions[i].generateFoxMoves(moves) : variantPositions[i].generateHoundMoves(moves);
+            }
+            sink += count;
+            return variantPositions.length;
+        });
+        benchmarks.put(prefix + ".search.node", () -> {
+            searcher.clearTable();
+            sink += searcher.findBestMove(variantPositions[0], turns[0], Long.MAX_VALUE, 1, VARIANT_SEARCH_DEPTH);
+            return searcher.getNodes();
+        });
+    }
+
+    // median ns per operation over the timed rounds
+    private static double measure(LongSupplier benchmark, int rounds) {
+        for (int round = 0; round < WARMUP_ROUNDS; round++) {
+            runRound(benchmark);
+        }
+        double[] nanosPerOp = new double[rounds];
+        for (int round = 0; round < rounds; round++) {
+            nanosPerOp[round] = runRound(benchmark);
+        }
+        Arrays.sort(nanosPerOp);
+        return nanosPerOp[rounds / 2];
+    }
+
+    private static double runRound(LongSupplier benchmark) {
+        long operations = 0;
+        long start = System.nanoTime();
+        long end = start + ROUND_MILLIS * 1_000_000L;
+        long now;
+        do {
+            operations += benchmark.getAsLong();
+            now = System.nanoTime();
+        } while (now - end < 0);
+        return (double) (now - start) / operations;
+    }
+
+    // a fixed set of positions reached by seeded random play, both sides to move
+    private void createPositions() {
+        positions = new BitboardPosition[POSITION_COUNT];
+        turns = new Square[POSITION_COUNT];
+        Random random = new Random(SEED);
+        int[] moves = new int[BitboardPosition.MAX_MOVES];
+        int created = 0;
+        while (created < POSITION_COUNT) {
+            GameEngine engine = new GameEngine();
+            engine.newGame(random.nextBoolean() ? Square.BLUE : Square.RED);
+            int plies = random.nextInt(24);
+            for (int ply = 0; ply < plies && !engine.isGameOver(); ply++) {
+                int count = engine.generateMoves(moves);
+                if (count == 0) {
+                    engine.passTurn();
+                } else {
+                    engine.applyMove(moves[random.nextInt(count)]);
+                }
+            }
+            if (!engine.isGameOver()) {
+                positions[created] = new BitboardPosition(engine.getPosition());
+                turns[created] = engine.getTurn();
+                created++;
+            }
+        }
+    }
+
+    // seeded random play like createPositions, with the side to move taken from turns
+    private VariantPosition[] createVariantPositions(BoardVariant variant) {
+        VariantPosition[] created = new VariantPosition[POSITION_COUNT];
+        Random random = new Random(SEED);
+        int[] moves = new int[variant.getMaxMoves()];
+        VariantGame game = new VariantGame(variant);
+        int count = 0;
+        while (count < POSITION_COUNT) {
+            game.newGame(turns[count]);
+            int plies = random.nextInt(4 * variant.getRows()) / 2 * 2;
+            for (int ply = 0; ply < plies && !game.isGameOver(); ply++) {
+                int moveCount = game.generateMoves(moves);
+                if (moveCount == 0) {
+                    game.passTurn();
+                } else {
+                    game.applyMove(moves[random.nextInt(moveCount)]);
+                }
+            }
+            if (!game.isGameOver() && game.getTurn() == turns[count]) {
+                created[count++] = game.getPosition().copy();
+            }
+        }
+        return created;
+    }
+
+    private static VariantPosition[] convert(VariantPosition[] source, Supplier<VariantPosition> factory) {
+        VariantPosition[] converted = new VariantPosition[source.length];
+        for (int i = 0; i < source.length; i++) {
+            converted[i] = factory.get();
+            converted[i].setFox(source[i].getFoxSquare());
+            for (int square = 0; square < source[i].getVariant().getSquareCount(); square++) {
+                if (source[i].isHound(square)) {
+                    converted[i].setHound(square);
+                }
+            }
+        }
+        return converted;
+    }
+
+    // a finished random game, so the file carries a full move history
+    private static SaveFormat.SavedGame createSavedGame() {
+        Random random = new Random(SEED);
+        int[] moves = new int[BitboardPosition.MAX_MOVES];
+        GameEngine engine = new GameEngine();
+        engine.newGame(Square.RED);
+        while (!engine.isGameOver()) {
+            int count = engine.generateMoves(moves);
+            if (count == 0) {
+                engine.passTurn();
+            } else {
+                engine.applyMove(moves[random.nextInt(count)]);
+            }
+        }
+        return new SaveFormat.SavedGame(new BitboardPosition(engine.getPosition()), engine.getTurn(),
+                10_000, 10_000, 10_000, engine.getMoveLog());
+    }
+
+    // benchmark<TAB>ns/op lines, # starts a comment
+    private static Map<String, Double> readResults(Path path) throws IOException {
+        Map<String, Double> results = new HashMap<>();
+        for (String line : Files.readAllLines(path)) {
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            String[] fields = line.split("\t");
+            results.put(fields[0], Double.parseDouble(fields[1]));
+        }
+        return results;
+    }
+
+    private static void writeResults(Path path, List<String> names, Map<String, Double> results) throws IOException {
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(path))) {
+            out.println("# " + describeMachine() + ", java " + System.getProperty("java.version") + ", "
+                    + System.getProperty("os.arch") + ", " + Runtime.getRuntime().availableProcessors() + " cores");
+            out.println("# benchmark\tns/op");
+            for (String name : names) {
+                out.println(String.format(Locale.ROOT, "%s\t%.2f", name, results.get(name)));
+            }
+        }
+    }
+
+    // the CPU model where Linux reports it, so a saved baseline names the machine it came from
+    private static String describeMachine() {
+        Path cpuInfo = Paths.get("/proc/cpuinfo");
+        if (Files.isReadable(cpuInfo)) {
+            try {
+                for (String line : Files.readAllLines(cpuInfo)) {
+                    if (line.startsWith("model name")) {
+                        return line.substring(line.indexOf(':') + 1).trim();
+                    }
+                }
+            } catch (IOException e) {
+                // fall back to the OS name
+            }
+        }
+        return System.getProperty("os.name");
+    }
+}
@@ -0,0 +1,99 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Histogram of non-negative values (nanoseconds, usually) with about 3% relative precision.
+//
+// Values below 64 get a bucket each; above that every power of two is split into 32 buckets, so
+// the whole long range fits in under 2000 counters. Recording is lock-free and can happen on any
+// thread; readers see a consistent-enough snapshot for reporting.
+public class LatencyHistogram {
+
+    private static final int LINEAR_BUCKETS = 64;
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKET_COUNT = LINEAR_BUCKETS + (63 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private AtomicLongArray counts;
+
+    public LatencyHistogram() {
+        counts = new AtomicLongArray(BUCKET_COUNT);
+    }
+
+    // bucket counts at this moment, for intervalSince
+    public long[] snapshot() {
+        long[] snapshot = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            snapshot[i] = counts.get(i);
+        }
+        return snapshot;
+    }
+
+    // the values recorded after the snapshot was taken, as a histogram of their own
+    public LatencyHistogram intervalSince(long[] snapshot) {
+        LatencyHistogram interval = new LatencyHistogram();
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            interval.counts.set(i, counts.get(i) - snapshot[i]);
+        }
+        return interval;
+    }
+
+    public void record(long value) {
+        counts.incrementAndGet(bucketOf(Math.max(value, 0)));
+    }
+
+    public long getCount() {
+        long count = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            count += counts.get(i);
+        }
+        return count;
+    }
+
+    // upper bound of the bucket holding the given percentile (0-100), 0 when empty
+    public long getPercentile(double percentile) {
+        long total = getCount();
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(total * percentile / 100));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return bucketUpperBound(i);
+            }
+        }
+        return bucketUpperBound(BUCKET_COUNT - 1);
+    }
+
+    public long getMax() {
+        for (int i = BUCKET_COUNT - 1; i >= 0; i--) {
+            if (counts.get(i) != 0) {
+                return bucketUpperBound(i);
+            }
+        }
+        return 0;
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts.set(i, 0);
+        }
+    }
+
+    private static int bucketOf(long value) {
+        if (value < LINEAR_BUCKETS) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return LINEAR_BUCKETS + (shift - 1) * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+    }
+
+    private static long bucketUpperBound(int bucket) {
+        if (bucket < LINEAR_BUCKETS) {
+            return bucket;
+        }
+        int shift = (bucket - LINEAR_BUCKETS) / SUB_BUCKETS + 1;
+        long top = (bucket - LINEAR_BUCKETS) % SUB_BUCKETS + SUB_BUCKETS;
+        return ((top + 1) << shift) - 1;
+    }
+}
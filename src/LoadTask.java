@@ -0,0 +1,56 @@
+import javafx.concurrent.Task;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Reads and validates a save file off the FX thread.
+//
+// The file is read in SaveTask.CHUNK_SIZE reads (progress and cancellation are checked between
+// them) and decoded, including the replay of its move history, before the task succeeds. Nothing
+// is shown until then: the caller applies the whole game in its succeeded handler.
+public class LoadTask extends Task<SaveFormat.SavedGame> {
+
+    // far larger than any real save, keeps a wrong file from filling the heap
+    private static final long MAX_FILE_SIZE = 16 * 1024 * 1024;
+
+    private Path path;
+
+    public LoadTask(Path path) {
+        this.path = path;
+    }
+
+    @Override
+    protected SaveFormat.SavedGame call() throws IOException {
+        long start = System.nanoTime();
+        GameMetrics.LOADS.increment();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > MAX_FILE_SIZE) {
+                throw new SaveFormat.InvalidFileException("File is too large");
+            }
+            ByteBuffer bytes = ByteBuffer.allocate((int) size);
+            while (bytes.hasRemaining()) {
+                if (isCancelled()) {
+                    return null;
+                }
+                ByteBuffer chunk = bytes.slice();
+                chunk.limit(Math.min(chunk.remaining(), SaveTask.CHUNK_SIZE));
+                int read = channel.read(chunk);
+                if (read < 0) {
+                    throw new SaveFormat.InvalidFileException("File is truncated");
+                }
+                bytes.position(bytes.position() + read);
+                updateProgress(bytes.position(), size);
+            }
+            return SaveFormat.decode(bytes.array());
+        } catch (IOException e) {
+            GameMetrics.IO_FAILURES.increment();
+            throw e;
+        } finally {
+            GameMetrics.recordSince(GameMetrics.LOAD_NANOS, start);
+        }
+    }
+}
@@ -0,0 +1,279 @@
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+// Load test for GameServer: keeps N games running with two simulated players each and measures
+// how long the server takes to acknowledge a move.
+//
+// All connections share one selector thread. Every player mirrors its game in a local GameEngine
+// and plays random legal moves, optionally after a random think time of up to twice thinkMillis.
+// When a game ends the players join again until the run time is over.
+//
+// usage: java LoadTestClient [host] [port] [games] [seconds] [thinkMillis]
+public class LoadTestClient {
+
+    private static final int BUFFER_SIZE = 256;
+    // players still waiting for an opponent this long after the run are closed
+    private static final long SHUTDOWN_GRACE_NANOS = 5_000_000_000L;
+
+    private Selector selector;
+    private Random random;
+    private long thinkNanos;
+    private long endTime;
+    private LatencyHistogram acknowledgeLatency;
+    private PriorityQueue<Player> thinking;
+    private long movesPlayed;
+    private long gamesFinished;
+    private long rejected;
+    private int openConnections;
+
+    public static void main(String[] args) throws IOException {
+        String host = args.length > 0 ? args[0] : "localhost";
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : GameServer.DEFAULT_PORT;
+        int games = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+        int seconds = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+        int thinkMillis = args.length > 4 ? Integer.parseInt(args[4]) : 0;
+
+        LoadTestClient client = new LoadTestClient(thinkMillis);
+        client.run(new InetSocketAddress(host, port), games, seconds);
+    }
+
+    public LoadTestClient(int thinkMillis) throws IOException {
+        selector = Selector.open();
+        random = new Random();
+        thinkNanos = thinkMillis * 1_000_000L;
+        acknowledgeLatency = new LatencyHistogram();
+        thinking = new PriorityQueue<>((a, b) -> Long.compare(a.moveAt, b.moveAt));
+    }
+
+    public void run(InetSocketAddress address, int games, int seconds) throws IOException {
+        for (int i = 0; i < 2 * games; i++) {
+            SocketChannel channel = SocketChannel.open();
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            Player player = new Player(channel);
+            boolean connected = channel.connect(address);
+            player.key = channel.register(selector, connected ? SelectionKey.OP_READ : SelectionKey.OP_CONNECT, player);
+            openConnections++;
+            if (connected) {
+                player.send(GameProtocol.JOIN, GameProtocol.ANY_SIDE, 0);
+            }
+        }
+
+        long start = System.nanoTime();
+        endTime = start + seconds * 1_000_000_000L;
+        long nextReport = start + 1_000_000_000L;
+        while (openConnections > 0) {
+            long now = System.nanoTime();
+            long wait = Math.min(nextReport - now, thinking.isEmpty() ? Long.MAX_VALUE : thinking.peek().moveAt - now);
+            if (wait > 1_000_000) {
+                selector.select(wait / 1_000_000);
+            } else {
+                selector.selectNow();
+            }
+            Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+            while (keys.hasNext()) {
+                SelectionKey key = keys.next();
+                keys.remove();
+                Player player = (Player) key.attachment();
+                if (key.isValid() && key.isConnectable()) {
+                    player.finishConnect();
+                }
+                if (key.isValid() && key.isReadable()) {
+                    player.read();
+                }
+                if (key.isValid() && key.isWritable()) {
+                    player.flush();
+                }
+            }
+            now = System.nanoTime();
+            while (!thinking.isEmpty() && thinking.peek().moveAt - now <= 0) {
+                thinking.poll().playMove();
+            }
+            if (now - endTime - SHUTDOWN_GRACE_NANOS > 0) {
+                for (SelectionKey key : selector.keys()) {
+                    ((Player) key.attachment()).close();
+                }
+            }
+            if (now - nextReport >= 0) {
+                report((now - start) / 1e9);
+                nextReport += 1_000_000_000L;
+            }
+        }
+        report((System.nanoTime() - start) / 1e9);
+        selector.close();
+    }
+
+    private void report(double seconds) {
+        System.out.println(String.format(Locale.ROOT,
+                "%5.1fs  connections %d  games %d  moves %d (%.0f/s)  rejected %d  ack p50 %.0f us  p99 %.0f us  p99.9 %.0f us  max %.0f us",
+                seconds, openConnections, gamesFinished, movesPlayed, movesPlayed / seconds, rejected,
+                acknowledgeLatency.getPercentile(50) / 1e3, acknowledgeLatency.getPercentile(99) / 1e3,
+                acknowledgeLatency.getPercentile(99.9) / 1e3, acknowledgeLatency.getMax() / 1e3));
+    }
+
+    private class Player {
+
+        private SocketChannel channel;
+        private SelectionKey key;
+        private ByteBuffer in;
+        private ByteBuffer out;
+        private GameEngine engine;
+        private Square side;
+        private int[] moves;
+        private int sentMove;
+        private long sentAt;
+        private long moveAt;
+        private boolean moveScheduled;
+
+        Player(SocketChannel channel) {
+            this.channel = channel;
+            in = ByteBuffer.allocate(BUFFER_SIZE);
+            out = ByteBuffer.allocate(BUFFER_SIZE);
+            engine = new GameEngine();
+            moves = new int[BitboardPosition.MAX_MOVES];
+            sentMove = -1;
+        }
+
+        void finishConnect() {
+            try {
+                channel.finishConnect();
+            } catch (IOException e) {
+                System.err.println("connect failed: " + e.getMessage());
+                close();
+                return;
+            }
+            key.interestOps(SelectionKey.OP_READ);
+            send(GameProtocol.JOIN, GameProtocol.ANY_SIDE, 0);
+        }
+
+        void read() {
+            int count;
+            try {
+                count = channel.read(in);
+            } catch (IOException e) {
+                count = -1;
+            }
+            if (count == -1) {
+                close();
+                return;
+            }
+            in.flip();
+            while (in.remaining() >= GameProtocol.FRAME_SIZE && key.isValid()) {
+                handleFrame(GameProtocol.frameType(in), GameProtocol.frameArg(in), GameProtocol.frameValue(in));
+                in.position(in.position() + GameProtocol.FRAME_SIZE);
+            }
+            in.compact();
+        }
+
+        private void handleFrame(byte type, int arg, int value) {
+            switch (type) {
+                case GameProtocol.START:
+                    side = GameProtocol.sideOf(arg);
+                    engine.newGame(GameProtocol.sideOf(value));
+                    sentMove = -1;
+                    break;
+                case GameProtocol.ACCEPTED:
+                    acknowledgeLatency.record(System.nanoTime() - sentAt);
+                    movesPlayed++;
+                    engine.applyMove(sentMove);
+                    sentMove = -1;
+                    break;
+                case GameProtocol.REJECTED:
+                    rejected++;
+                    sentMove = -1;
+                    break;
+                case GameProtocol.OPPONENT_MOVED:
+                    engine.applyMove(value);
+                    break;
+                case GameProtocol.PASSED:
+                    engine.passTurn();
+                    break;
+                case GameProtocol.GAME_OVER:
+                    // both players count the game, so every player counts half of it
+                    if (side == Square.BLUE) {
+                        gamesFinished++;
+                    }
+                    side = null;
+                    if (System.nanoTime() - endTime < 0) {
+                        send(GameProtocol.JOIN, GameProtocol.ANY_SIDE, 0);
+                    } else {
+                        close();
+                    }
+                    return;
+                default:
+                    throw new IllegalStateException("Unexpected frame " + type);
+            }
+            scheduleMove();
+        }
+
+        private void scheduleMove() {
+            if (side == null || sentMove != -1 || moveScheduled || engine.isGameOver() || engine.getTurn() != side) {
+                return;
+            }
+            if (thinkNanos == 0) {
+                playMove();
+            } else {
+                moveAt = System.nanoTime() + (long) (random.nextDouble() * 2 * thinkNanos);
+                moveScheduled = true;
+                thinking.add(this);
+            }
+        }
+
+        void playMove() {
+            moveScheduled = false;
+            if (side == null || sentMove != -1 || !key.isValid() || engine.isGameOver() || engine.getTurn() != side) {
+                return;
+            }
+            int count = engine.generateMoves(moves);
+            if (count == 0) {
+                // blocked hounds, the server passes for them
+                return;
+            }
+            sentMove = moves[random.nextInt(count)];
+            sentAt = System.nanoTime();
+            send(GameProtocol.MOVE, 0, sentMove);
+        }
+
+        void send(byte type, int arg, int value) {
+            GameProtocol.putFrame(out, type, arg, value);
+            flush();
+        }
+
+        void flush() {
+            if (!key.isValid()) {
+                return;
+            }
+            out.flip();
+            try {
+                channel.write(out);
+            } catch (IOException e) {
+                out.clear();
+                close();
+                return;
+            }
+            out.compact();
+            key.interestOps(out.position() > 0 ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+        }
+
+        void close() {
+            if (!key.isValid()) {
+                return;
+            }
+            key.cancel();
+            openConnections--;
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // already gone
+            }
+        }
+    }
+}
@@ -0,0 +1,76 @@
+// VariantPosition for boards of up to 64 dark squares, the hounds are one long mask.
+public class LongVariantPosition extends VariantPosition {
+
+    private long[] forwardShiftSources;
+    private long allSquares;
+    private long hounds;
+
+    public LongVariantPosition(BoardVariant variant) {
+        super(variant);
+        forwardShiftSources = variant.getForwardShiftSources();
+        if (forwardShiftSources == null) {
+            throw new IllegalArgumentException("Board " + variant + " does not fit in a long");
+        }
+        int squareCount = variant.getSquareCount();
+        allSquares = squareCount == 64 ? -1L : (1L << squareCount) - 1;
+    }
+
+    @Override
+    public VariantPosition copy() {
+        LongVariantPosition copy = new LongVariantPosition(variant);
+        copy.hounds = hounds;
+        copy.foxSquare = foxSquare;
+        return copy;
+    }
+
+    @Override
+    public void clear() {
+        hounds = 0;
+        foxSquare = -1;
+    }
+
+    @Override
+    public boolean isHound(int square) {
+        return (hounds & (1L << square)) != 0;
+    }
+
+    @Override
+    public int getHoundCount() {
+        return Long.bitCount(hounds);
+    }
+
+    // same shifts as BitboardPosition.generateHoundMoves, only 64 bits wide
+    @Override
+    public int generateHoundMoves(int[] moves) {
+        long empty = allSquares & ~hounds;
+        if (foxSquare != -1) {
+            empty &= ~(1L << foxSquare);
+        }
+        int count = 0;
+        for (int i = 0; i < forwardShiftSources.length; i++) {
+            int shift = variant.getSquaresPerRow() - 1 + i;
+            long targets = ((hounds & forwardShiftSources[i]) << shift) & empty;
+            while (targets != 0) {
+                int to = Long.numberOfTrailingZeros(targets);
+                targets &= targets - 1;
+                moves[count++] = BitboardPosition.packMove(to - shift, to);
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public boolean hasHoundAbove(int row) {
+        return (hounds & ((1L << row * variant.getSquaresPerRow()) - 1)) != 0;
+    }
+
+    @Override
+    protected void addHound(int square) {
+        hounds |= 1L << square;
+    }
+
+    @Override
+    protected void removeHound(int square) {
+        hounds &= ~(1L << square);
+    }
+}
@@ -0,0 +1,83 @@
+import java.util.Arrays;
+
+// Every ply of a game as packed moves (see BitboardPosition.packMove), PASS for a forfeited turn.
+//
+// The cursor is the number of plies currently on the board. Undo and redo only move the cursor,
+// the engine applies or reverts the single move it returns. Appending after an undo drops the
+// undone plies, like any editor history.
+public class MoveLog {
+
+    public static final int PASS = -1;
+    private static final int INITIAL_CAPACITY = 64;
+
+    private BitboardPosition startPosition;
+    private Square startTurn;
+    private int[] moves;
+    private int size;
+    private int cursor;
+
+    public MoveLog(BitboardPosition startPosition, Square startTurn) {
+        this.startPosition = new BitboardPosition(startPosition);
+        this.startTurn = startTurn;
+        moves = new int[INITIAL_CAPACITY];
+    }
+
+    public MoveLog(BitboardPosition startPosition, Square startTurn, int[] moves, int size, int cursor) {
+        this(startPosition, startTurn);
+        if (size < 0 || cursor < 0 || cursor > size || size > moves.length) {
+            throw new IllegalArgumentException("Invalid log size " + size + " / cursor " + cursor);
+        }
+        this.moves = Arrays.copyOf(moves, Math.max(size, INITIAL_CAPACITY));
+        this.size = size;
+        this.cursor = cursor;
+    }
+
+    // independent copy, e.g. to hand a snapshot to another thread
+    public MoveLog(MoveLog other) {
+        this(other.startPosition, other.startTurn, other.moves, other.size, other.cursor);
+    }
+
+    public BitboardPosition getStartPosition() {
+        return new BitboardPosition(startPosition);
+    }
+    public Square getStartTurn() {
+        return startTurn;
+    }
+
+    public void append(int move) {
+        size = cursor;
+        if (size == moves.length) {
+            moves = Arrays.copyOf(moves, moves.length * 2);
+        }
+        moves[size++] = move;
+        cursor = size;
+    }
+
+    public int getPly() {
+        return cursor;
+    }
+    public int size() {
+        return size;
+    }
+    public int getMove(int ply) {
+        if (ply < 0 || ply >= size) {
+            throw new IndexOutOfBoundsException("Ply " + ply + " of " + size);
+        }
+        return moves[ply];
+    }
+
+    public boolean canUndo() {
+        return cursor > 0;
+    }
+    public boolean canRedo() {
+        return cursor < size;
+    }
+    // move to take back, the cursor steps back over it
+    public int undo() {
+        return moves[--cursor];
+    }
+    // move to play again, the cursor steps forward over it
+    public int redo() {
+        return moves[cursor++];
+    }
+}
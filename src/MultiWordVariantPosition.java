@@ -0,0 +1,86 @@
+// VariantPosition for boards of any size: hound occupancy in a multi-word bitset plus a list of
+// hound squares, so move generation costs the same per hound however large the board is.
+public class MultiWordVariantPosition extends VariantPosition {
+
+    private long[] words;
+    private int[] houndSquares;
+    private int houndCount;
+
+    public MultiWordVariantPosition(BoardVariant variant) {
+        super(variant);
+        words = new long[(variant.getSquareCount() + 63) >>> 6];
+        houndSquares = new int[variant.getSquareCount()];
+    }
+
+    @Override
+    public VariantPosition copy() {
+        MultiWordVariantPosition copy = new MultiWordVariantPosition(variant);
+        System.arraycopy(words, 0, copy.words, 0, words.length);
+        System.arraycopy(houndSquares, 0, copy.houndSquares, 0, houndCount);
+        copy.houndCount = houndCount;
+        copy.foxSquare = foxSquare;
+        return copy;
+    }
+
+    @Override
+    public void clear() {
+        for (int i = 0; i < words.length; i++) {
+            words[i] = 0;
+        }
+        houndCount = 0;
+        foxSquare = -1;
+    }
+
+    @Override
+    public boolean isHound(int square) {
+        return (words[square >>> 6] & (1L << square)) != 0;
+    }
+
+    @Override
+    public int getHoundCount() {
+        return houndCount;
+    }
+
+    @Override
+    public int generateHoundMoves(int[] moves) {
+        int count = 0;
+        for (int i = 0; i < houndCount; i++) {
+            int from = houndSquares[i];
+            for (int to : variant.getForwardSteps(from)) {
+                if (to != foxSquare && !isHound(to)) {
+                    moves[count++] = BitboardPosition.packMove(from, to);
+                }
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public boolean hasHoundAbove(int row) {
+        int limit = row * variant.getSquaresPerRow();
+        int word = 0;
+        for (; (word + 1) << 6 <= limit; word++) {
+            if (words[word] != 0) {
+                return true;
+            }
+        }
+        return (limit & 63) != 0 && (words[word] & ((1L << limit) - 1)) != 0;
+    }
+
+    @Override
+    protected void addHound(int square) {
+        words[square >>> 6] |= 1L << square;
+        houndSquares[houndCount++] = square;
+    }
+
+    @Override
+    protected void removeHound(int square) {
+        words[square >>> 6] &= ~(1L << square);
+        for (int i = 0; i < houndCount; i++) {
+            if (houndSquares[i] == square) {
+                houndSquares[i] = houndSquares[--houndCount];
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,137 @@
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.Node;
+import javafx.scene.layout.ColumnConstraints;
+import javafx.scene.layout.GridPane;
+import javafx.scene.layout.RowConstraints;
+import javafx.scene.paint.Color;
+
+import java.util.BitSet;
+
+// One BoardSquare node per cell in a GridPane, rebuilt when the board changes.
+public class NodeBoardRenderer extends GridPane implements BoardRenderer {
+
+    private static final double SQUARE_SIZE = 50;
+    // larger boards get smaller squares, so they take the space of the 8x8 one
+    private static final double BOARD_SIZE = GameParams.COL_COUNT * SQUARE_SIZE;
+
+    private BoardVariant variant;
+    private BoardSquare[][] fields;
+    private ClickHandler clickHandler;
+    // what the 8x8 board currently shows, as BitboardPosition masks, so redraws only touch changed
+    // squares; BoardSquare.setPiece skips unchanged squares on the other boards
+    private int shownFox;
+    private int shownHounds;
+    private BitSet highlightedSquares;
+
+    public NodeBoardRenderer() {
+        setAlignment(Pos.CENTER);
+        setPadding(new Insets(25));
+        highlightedSquares = new BitSet();
+        setBoard(BoardVariant.CLASSIC);
+    }
+
+    @Override
+    public void setBoard(BoardVariant variant) {
+        this.variant = variant;
+        int rows = variant.getRows();
+        int cols = variant.getCols();
+        getChildren().clear();
+        getRowConstraints().clear();
+        getColumnConstraints().clear();
+        fields = new BoardSquare[rows][cols];
+        double size = Math.min(SQUARE_SIZE, BOARD_SIZE / Math.max(rows, cols));
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < cols; col++) {
+                add(createBoardSquare(row, col, size), col, row);
+            }
+        }
+
+        for (int row = 0; row < rows; row++) {
+            RowConstraints constraints = new RowConstraints();
+            constraints.setPercentHeight(100.0 / rows);
+            getRowConstraints().add(constraints);
+        }
+
+        for (int col = 0; col < cols; col++) {
+            ColumnConstraints constraints = new ColumnConstraints();
+            constraints.setPercentWidth(100.0 / cols);
+            getColumnConstraints().add(constraints);
+        }
+        shownFox = 0;
+        shownHounds = 0;
+        highlightedSquares.clear();
+    }
+
+    private Color getSquareBackgroundColor(int row, int col) {
+        return variant.squareIndex(row, col) != -1 ? Color.DARKGRAY : Color.LIGHTGRAY;
+    }
+
+    private BoardSquare createBoardSquare(int row, int col, double size) {
+        BoardSquare square = new BoardSquare(getSquareBackgroundColor(row, col));
+        square.setPrefSize(size, size);
+        fields[row][col] = square;
+        square.setOnMouseClicked(e -> {
+            if (clickHandler != null) {
+                clickHandler.squareClicked(row, col);
+            }
+        });
+        return square;
+    }
+
+    @Override
+    public Node getNode() {
+        return this;
+    }
+
+    @Override
+    public void setClickHandler(ClickHandler handler) {
+        clickHandler = handler;
+    }
+
+    // diffs against the pieces on screen and only updates the squares that changed
+    @Override
+    public void showPosition(BitboardPosition position) {
+        int fox = position.getFox();
+        int hounds = position.getHounds();
+        int changed = (fox ^ shownFox) | (hounds ^ shownHounds);
+        while (changed != 0) {
+            int square = Integer.numberOfTrailingZeros(changed);
+            changed &= changed - 1;
+            int bit = 1 << square;
+            Square piece = (fox & bit) != 0 ? Square.BLUE : (hounds & bit) != 0 ? Square.RED : Square.EMPTY;
+            fieldAt(square).setPiece(piece);
+        }
+        shownFox = fox;
+        shownHounds = hounds;
+    }
+
+    @Override
+    public void showPosition(VariantPosition position) {
+        for (int square = 0; square < variant.getSquareCount(); square++) {
+            fieldAt(square).setPiece(position.squareAt(square));
+        }
+    }
+
+    @Override
+    public void setHighlighted(int square, boolean highlighted) {
+        if (highlighted) {
+            fieldAt(square).highlight();
+        } else {
+            fieldAt(square).blacken();
+        }
+        highlightedSquares.set(square, highlighted);
+    }
+
+    @Override
+    public void clearHighlights() {
+        for (int square = highlightedSquares.nextSetBit(0); square >= 0; square = highlightedSquares.nextSetBit(square + 1)) {
+            fieldAt(square).blacken();
+        }
+        highlightedSquares.clear();
+    }
+
+    private BoardSquare fieldAt(int square) {
+        return fields[variant.rowOf(square)][variant.colOf(square)];
+    }
+}
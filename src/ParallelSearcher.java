@@ -0,0 +1,123 @@
+import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Lazy SMP: every thread runs its own iterative deepening over the same root and they
+// only cooperate through the shared transposition table. Helpers start at staggered
+// depths so they fill the table with different parts of the tree.
+public class ParallelSearcher {
+
+    private TranspositionTable table;
+    private AlphaBetaSearcher[] searchers;
+    private ExecutorService helpers;
+    private int bestScore;
+    private int completedDepth;
+    private long nodes;
+
+    public ParallelSearcher(int threadCount) {
+        this(threadCount, AlphaBetaSearcher.DEFAULT_TABLE_BITS);
+    }
+
+    public ParallelSearcher(int threadCount, int tableBits) {
+        if (threadCount < 1) {
+            throw new IllegalArgumentException("Thread count must be positive: " + threadCount);
+        }
+        table = new TranspositionTable(tableBits);
+        searchers = new AlphaBetaSearcher[threadCount];
+        for (int i = 0; i < threadCount; i++) {
+            searchers[i] = new AlphaBetaSearcher(table);
+        }
+        if (threadCount > 1) {
+            helpers = Executors.newFixedThreadPool(threadCount - 1, r -> {
+                Thread thread = new Thread(r, "search-helper");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    public int getThreadCount() {
+        return searchers.length;
+    }
+
+    public int findBestMove(BitboardPosition root, Square turn, long timeLimitMillis) {
+        return findBestMove(root, turn, timeLimitMillis, AlphaBetaSearcher.MAX_DEPTH);
+    }
+
+    // the calling thread runs the main search, helpers are stopped as soon as it returns
+    public int findBestMove(BitboardPosition root, Square turn, long timeLimitMillis, int maxDepth) {
+        long deadline = System.nanoTime() + timeLimitMillis * 1_000_000L;
+        for (AlphaBetaSearcher searcher : searchers) {
+            searcher.clearStopRequest();
+        }
+        ArrayList<Future<Integer>> results = new ArrayList<>();
+        for (int i = 1; i < searchers.length; i++) {
+            AlphaBetaSearcher helper = searchers[i];
+            int startDepth = 1 + i % 2;
+            results.add(helpers.submit(() -> helper.findBestMove(root, turn, deadline, startDepth, maxDepth)));
+        }
+
+        int bestMove = searchers[0].findBestMove(root, turn, deadline, 1, maxDepth);
+        AlphaBetaSearcher best = searchers[0];
+        for (int i = 1; i < searchers.length; i++) {
+            searchers[i].stop();
+        }
+        for (int i = 1; i < searchers.length; i++) {
+            int helperMove = waitFor(results.get(i - 1));
+            // a helper that finished a deeper iteration than the main thread has the better answer
+            if (searchers[i].getCompletedDepth() > best.getCompletedDepth()) {
+                best = searchers[i];
+                bestMove = helperMove;
+            }
+        }
+
+        bestScore = best.getBestScore();
+        completedDepth = best.getCompletedDepth();
+        nodes = 0;
+        for (AlphaBetaSearcher searcher : searchers) {
+            nodes += searcher.getNodes();
+        }
+        return bestMove;
+    }
+
+    public void stop() {
+        for (AlphaBetaSearcher searcher : searchers) {
+            searcher.stop();
+        }
+    }
+
+    public void shutdown() {
+        stop();
+        if (helpers != null) {
+            helpers.shutdownNow();
+        }
+    }
+
+    public void clearTable() {
+        table.clear();
+    }
+
+    public int getBestScore() {
+        return bestScore;
+    }
+    public int getCompletedDepth() {
+        return completedDepth;
+    }
+    // nodes searched by all threads during the last search
+    public long getNodes() {
+        return nodes;
+    }
+
+    private static int waitFor(Future<Integer> result) {
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return -1;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Search helper failed", e.getCause());
+        }
+    }
+}
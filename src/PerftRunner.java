@@ -0,0 +1,375 @@
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntFunction;
+
+// Perft: counts the leaf nodes of the full game tree to a fixed depth, to catch move generator bugs.
+//
+// Finished positions (fox on the top row, fox to move and trapped) are leaves with no children,
+// blocked hounds have exactly one child, the pass. The fast count uses the engine's generators, or
+// with --squares the per-piece moves the view generates for a clicked piece. Counts are checked against the
+// known values for the start position, and for any other position (a .save file, a --board variant)
+// against a slow count on a plain Square grid that shares no code with the bitboards.
+// --threads splits the root moves over a thread pool, --divide prints the count below each root move.
+//
+// usage: java PerftRunner [--depth N] [--threads N] [--board spec] [--squares] [--divide] [--naive] [file.save]
+public class PerftRunner {
+
+    private static final String USAGE = "usage: java PerftRunner [--depth N] [--threads N] [--board spec] [--squares] [--divide] [--naive] [file.save]";
+
+    // start position with BLUE / RED moving first, index = depth
+    private static final long[] FOX_FIRST_COUNTS = {
+            1L, 2L, 14L, 56L, 344L, 1032L, 6264L, 23387L, 141427L, 442493L, 2674123L, 9531347L, 58519448L, 179730775L
+    };
+    private static final long[] HOUNDS_FIRST_COUNTS = {
+            1L, 7L, 14L, 86L, 344L, 2088L, 6264L, 38177L, 141230L, 857856L, 2648704L, 16301051L, 57470534L, 354877224L
+    };
+
+    private int threads;
+    private boolean squares;
+    private boolean divide;
+
+    public PerftRunner(int threads, boolean squares, boolean divide) {
+        this.threads = threads;
+        this.squares = squares;
+        this.divide = divide;
+    }
+
+    public static void main(String[] args) throws IOException {
+        int depth = 10;
+        int threads = Runtime.getRuntime().availableProcessors();
+        BoardVariant board = null;
+        boolean squares = false;
+        boolean divide = false;
+        boolean naive = false;
+        String file = null;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--depth":
+                    depth = Integer.parseInt(args[++i]);
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                case "--board":
+                    board = BoardVariant.parse(args[++i]);
+                    break;
+                case "--squares":
+                    squares = true;
+                    break;
+                case "--divide":
+                    divide = true;
+                    break;
+                case "--naive":
+                    naive = true;
+                    break;
+                case "--help":
+                case "-h":
+                    System.out.println(USAGE);
+                    return;
+                default:
+                    // anything else that looks like a flag is a typo, not a file to read
+                    if (args[i].startsWith("-") || file != null) {
+                        System.err.println("Unexpected argument " + args[i]);
+                        System.err.println(USAGE);
+                        System.exit(1);
+                    }
+                    file = args[i];
+            }
+        }
+
+        PerftRunner runner = new PerftRunner(threads, squares, divide);
+        boolean passed = true;
+        if (file != null) {
+            SaveFormat.SavedGame game = SaveFormat.read(Paths.get(file));
+            if (game.getVariantGame() != null) {
+                passed = runner.checkVariant(file, game.getVariantGame().getPosition(), game.getTurn(), depth);
+            } else {
+                passed = runner.check(file, game.getPosition(), game.getTurn(), depth, -1);
+            }
+        } else if (board != null) {
+            VariantPosition start = VariantPosition.create(board);
+            start.setStartPosition();
+            for (Square turn : new Square[]{Square.BLUE, Square.RED}) {
+                passed &= runner.checkVariant(board + " " + turn + " first", start, turn, depth);
+            }
+        } else {
+            BitboardPosition start = new BitboardPosition();
+            start.setStartPosition();
+            passed &= runner.check("start BLUE first", start, Square.BLUE, depth, reference(FOX_FIRST_COUNTS, depth, naive));
+            passed &= runner.check("start RED first", start, Square.RED, depth, reference(HOUNDS_FIRST_COUNTS, depth, naive));
+        }
+        if (!passed) {
+            System.exit(1);
+        }
+    }
+
+    // -1 when there is no stored value and the grid count has to be used
+    private static long reference(long[] counts, int depth, boolean naive) {
+        return naive || depth >= counts.length ? -1 : counts[depth];
+    }
+
+    private boolean check(String name, BitboardPosition position, Square turn, int depth, long expected) {
+        long start = System.nanoTime();
+        long nodes = perftRoot(position, turn, depth);
+        long nanos = System.nanoTime() - start;
+        if (expected == -1) {
+            expected = GridPerft.fromPosition(BoardVariant.CLASSIC, square -> position.squareAt(BitboardPosition.rowOf(square), BitboardPosition.colOf(square)))
+                    .perft(turn == Square.BLUE, depth);
+        }
+        return report(name, depth, nodes, nanos, expected);
+    }
+
+    private boolean checkVariant(String name, VariantPosition position, Square turn, int depth) {
+        long start = System.nanoTime();
+        long nodes = perftRoot(position, turn, depth);
+        long nanos = System.nanoTime() - start;
+        long expected = GridPerft.fromPosition(position.getVariant(), position::squareAt).perft(turn == Square.BLUE, depth);
+        return report(name, depth, nodes, nanos, expected);
+    }
+
+    private boolean report(String name, int depth, long nodes, long nanos, long expected) {
+        boolean passed = nodes == expected;
+        System.out.println(String.format(Locale.ROOT, "%s depth %d: %d nodes in %.1f ms, %.0f nodes/s, expected %d %s",
+                name, depth, nodes, nanos / 1e6, nodes / (nanos / 1e9), expected, passed ? "OK" : "MISMATCH"));
+        return passed;
+    }
+
+    public long perftRoot(BitboardPosition root, Square turn, int depth) {
+        List<Callable<Long>> tasks = new ArrayList<>();
+        List<Integer> rootMoves = new ArrayList<>();
+        boolean foxToMove = turn == Square.BLUE;
+        if (depth == 0 || isFinished(root, foxToMove)) {
+            return depth == 0 ? 1 : 0;
+        }
+        int[] moves = new int[BitboardPosition.MAX_MOVES];
+        int count = generate(root, foxToMove, moves);
+        if (count == 0) {
+            moves[0] = MoveLog.PASS;
+            count = 1;
+        }
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            BitboardPosition child = new BitboardPosition(root);
+            if (move != MoveLog.PASS) {
+                child.makeMove(move);
+            }
+            rootMoves.add(move);
+            tasks.add(() -> new Counter(squares).perft(child, !foxToMove, depth - 1));
+        }
+        return runTasks(tasks, rootMoves);
+    }
+
+    public long perftRoot(VariantPosition root, Square turn, int depth) {
+        List<Callable<Long>> tasks = new ArrayList<>();
+        List<Integer> rootMoves = new ArrayList<>();
+        boolean foxToMove = turn == Square.BLUE;
+        if (depth == 0 || root.hasFoxReachedTop() || (foxToMove && root.isFoxTrapped())) {
+            return depth == 0 ? 1 : 0;
+        }
+        int[] moves = new int[root.getVariant().getMaxMoves()];
+        int count = foxToMove ? root.generateFoxMoves(moves) : root.generateHoundMoves(moves);
+        if (count == 0) {
+            moves[0] = MoveLog.PASS;
+            count = 1;
+        }
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            VariantPosition child = root.copy();
+            if (move != MoveLog.PASS) {
+                child.makeMove(move);
+            }
+            rootMoves.add(move);
+            tasks.add(() -> perftVariant(child, !foxToMove, depth - 1, new int[depth][moves.length]));
+        }
+        return runTasks(tasks, rootMoves);
+    }
+
+    private long runTasks(List<Callable<Long>> tasks, List<Integer> rootMoves) {
+        ExecutorService executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "perft");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            long total = 0;
+            List<Future<Long>> results = executor.invokeAll(tasks);
+            for (int i = 0; i < results.size(); i++) {
+                long nodes = results.get(i).get();
+                if (divide) {
+                    System.out.println(describeMove(rootMoves.get(i)) + "\t" + nodes);
+                }
+                total += nodes;
+            }
+            return total;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Perft interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Perft task failed", e.getCause());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static String describeMove(int move) {
+        return move == MoveLog.PASS ? "pass" : BitboardPosition.moveFrom(move) + "-" + BitboardPosition.moveTo(move);
+    }
+
+    private static boolean isFinished(BitboardPosition position, boolean foxToMove) {
+        return position.hasFoxReachedTop() || (foxToMove && position.isFoxTrapped());
+    }
+
+    private static long perftVariant(VariantPosition position, boolean foxToMove, int depth, int[][] moveBuffers) {
+        if (depth == 0) {
+            return 1;
+        }
+        if (position.hasFoxReachedTop() || (foxToMove && position.isFoxTrapped())) {
+            return 0;
+        }
+        int[] moves = moveBuffers[depth - 1];
+        int count = foxToMove ? position.generateFoxMoves(moves) : position.generateHoundMoves(moves);
+        if (count == 0) {
+            return perftVariant(position, true, depth - 1, moveBuffers);
+        }
+        long nodes = 0;
+        for (int i = 0; i < count; i++) {
+            int from = BitboardPosition.moveFrom(moves[i]);
+            int to = BitboardPosition.moveTo(moves[i]);
+            position.move(from, to);
+            nodes += perftVariant(position, !foxToMove, depth - 1, moveBuffers);
+            position.move(to, from);
+        }
+        return nodes;
+    }
+
+    // one per task, owns the move buffers of its subtree
+    private static class Counter {
+
+        private boolean squares;
+        private int[][] moveBuffers = new int[AlphaBetaSearcher.MAX_DEPTH][BitboardPosition.MAX_MOVES];
+        private int[] pieceMoves = new int[BitboardPosition.MAX_MOVES];
+
+        Counter(boolean squares) {
+            this.squares = squares;
+        }
+
+        long perft(BitboardPosition position, boolean foxToMove, int depth) {
+            if (depth == 0) {
+                return 1;
+            }
+            if (isFinished(position, foxToMove)) {
+                return 0;
+            }
+            int[] moves = moveBuffers[depth - 1];
+            int count = squares ? generateBySquare(position, foxToMove, moves) : generate(position, foxToMove, moves);
+            if (count == 0) {
+                return perft(position, true, depth - 1);
+            }
+            long nodes = 0;
+            for (int i = 0; i < count; i++) {
+                int from = BitboardPosition.moveFrom(moves[i]);
+                int to = BitboardPosition.moveTo(moves[i]);
+                position.move(from, to);
+                nodes += perft(position, !foxToMove, depth - 1);
+                position.move(to, from);
+            }
+            return nodes;
+        }
+
+        // the moves the view offers when each piece of the side to move is clicked
+        private int generateBySquare(BitboardPosition position, boolean foxToMove, int[] moves) {
+            int pieces = foxToMove ? position.getFox() : position.getHounds();
+            int count = 0;
+            while (pieces != 0) {
+                int square = Integer.numberOfTrailingZeros(pieces);
+                pieces &= pieces - 1;
+                int pieceCount = position.generateMovesFrom(square, pieceMoves);
+                System.arraycopy(pieceMoves, 0, moves, count, pieceCount);
+                count += pieceCount;
+            }
+            return count;
+        }
+    }
+
+    private static int generate(BitboardPosition position, boolean foxToMove, int[] moves) {
+        return foxToMove ? position.generateFoxMoves(moves) : position.generateHoundMoves(moves);
+    }
+
+    // the rules written out on a plain grid, slow but independent of the square numbering
+    private static class GridPerft {
+
+        private int rows;
+        private int cols;
+        private Square[][] grid;
+
+        GridPerft(int rows, int cols) {
+            this.rows = rows;
+            this.cols = cols;
+            grid = new Square[rows][cols];
+        }
+
+        static GridPerft fromPosition(BoardVariant variant, IntFunction<Square> squareAt) {
+            GridPerft perft = new GridPerft(variant.getRows(), variant.getCols());
+            for (int row = 0; row < variant.getRows(); row++) {
+                for (int col = 0; col < variant.getCols(); col++) {
+                    int square = variant.squareIndex(row, col);
+                    perft.grid[row][col] = square == -1 ? null : squareAt.apply(square);
+                }
+            }
+            return perft;
+        }
+
+        long perft(boolean foxToMove, int depth) {
+            if (depth == 0) {
+                return 1;
+            }
+            for (int col = 0; col < cols; col++) {
+                if (grid[0][col] == Square.BLUE) {
+                    return 0;
+                }
+            }
+            long nodes = 0;
+            boolean moved = false;
+            for (int row = 0; row < rows; row++) {
+                for (int col = 0; col < cols; col++) {
+                    Square piece = grid[row][col];
+                    if (piece != (foxToMove ? Square.BLUE : Square.RED)) {
+                        continue;
+                    }
+                    for (int dRow = -1; dRow <= 1; dRow += 2) {
+                        // hounds only move down the board
+                        if (piece == Square.RED && dRow == -1) {
+                            continue;
+                        }
+                        for (int dCol = -1; dCol <= 1; dCol += 2) {
+                            int toRow = row + dRow;
+                            int toCol = col + dCol;
+                            if (toRow < 0 || toRow >= rows || toCol < 0 || toCol >= cols || grid[toRow][toCol] != Square.EMPTY) {
+                                continue;
+                            }
+                            moved = true;
+                            grid[toRow][toCol] = piece;
+                            grid[row][col] = Square.EMPTY;
+                            nodes += perft(!foxToMove, depth - 1);
+                            grid[row][col] = piece;
+                            grid[toRow][toCol] = Square.EMPTY;
+                        }
+                    }
+                }
+            }
+            if (moved) {
+                return nodes;
+            }
+            // a trapped fox loses, blocked hounds pass
+            return foxToMove ? 0 : perft(true, depth - 1);
+        }
+    }
+}
@@ -0,0 +1,177 @@
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Bounded cache of per-position results (legal moves, best move and score of the deepest search
+// so far), keyed by the Zobrist hash and safe to share between threads and sessions.
+//
+// The table is set-associative: a hash picks a set of WAYS slots and only those are searched.
+// Entries are immutable and published through an AtomicReferenceArray, so lookups never lock;
+// writers lock the set's stripe. When a set is full the CLOCK rule picks the victim: the set's
+// hand skips and clears entries used since it last passed them and evicts the first unused one.
+public class PositionCache {
+
+    private static final int WAYS = 8;
+    private static final int LOCK_STRIPES = 64;
+
+    public static class Entry {
+
+        private long key;
+        private int fox;
+        private int hounds;
+        private Square turn;
+        private int[] moves;
+        private int bestMove;
+        private int score;
+        private int depth;
+
+        private Entry(long key, BitboardPosition position, Square turn, int[] moves, int bestMove, int score, int depth) {
+            this.key = key;
+            fox = position.getFox();
+            hounds = position.getHounds();
+            this.turn = turn;
+            this.moves = moves;
+            this.bestMove = bestMove;
+            this.score = score;
+            this.depth = depth;
+        }
+
+        private boolean matches(long key, BitboardPosition position, Square turn) {
+            return this.key == key && fox == position.getFox() && hounds == position.getHounds() && this.turn == turn;
+        }
+
+        public int getMoveCount() {
+            return moves.length;
+        }
+        // writes the legal moves into the buffer (at least BitboardPosition.MAX_MOVES long), returns their count
+        public int copyMoves(int[] buffer) {
+            System.arraycopy(moves, 0, buffer, 0, moves.length);
+            return moves.length;
+        }
+        public boolean hasSearchResult() {
+            return bestMove != -1;
+        }
+        // -1 when the position has not been searched
+        public int getBestMove() {
+            return bestMove;
+        }
+        // from the side to move's point of view
+        public int getScore() {
+            return score;
+        }
+        public int getDepth() {
+            return depth;
+        }
+    }
+
+    private AtomicReferenceArray<Entry> slots;
+    // CLOCK reference bits, set on hits; racy updates only make eviction a little less precise
+    private boolean[] referenced;
+    private byte[] hands;
+    private Object[] locks;
+    private int setMask;
+    private LongAdder hits;
+    private LongAdder misses;
+
+    // capacity is rounded up to a power of two
+    public PositionCache(int capacity) {
+        int wanted = (capacity + WAYS - 1) / WAYS;
+        int sets = wanted <= 1 ? 1 : Integer.highestOneBit(wanted - 1) << 1;
+        slots = new AtomicReferenceArray<>(sets * WAYS);
+        referenced = new boolean[sets * WAYS];
+        hands = new byte[sets];
+        setMask = sets - 1;
+        locks = new Object[LOCK_STRIPES];
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+        hits = new LongAdder();
+        misses = new LongAdder();
+    }
+
+    public int getCapacity() {
+        return slots.length();
+    }
+    public long getHits() {
+        return hits.sum();
+    }
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public Entry get(BitboardPosition position, Square turn) {
+        return get(Zobrist.hash(position, turn), position, turn);
+    }
+
+    private Entry get(long key, BitboardPosition position, Square turn) {
+        int first = setOf(key) * WAYS;
+        for (int slot = first; slot < first + WAYS; slot++) {
+            Entry entry = slots.get(slot);
+            if (entry != null && entry.matches(key, position, turn)) {
+                referenced[slot] = true;
+                hits.increment();
+                return entry;
+            }
+        }
+        misses.increment();
+        return null;
+    }
+
+    // cached entry, or a new one holding the legal moves of the side to move
+    public Entry getMoves(BitboardPosition position, Square turn) {
+        long key = Zobrist.hash(position, turn);
+        Entry entry = get(key, position, turn);
+        if (entry != null) {
+            return entry;
+        }
+        int[] buffer = new int[BitboardPosition.MAX_MOVES];
+        int count = turn == Square.BLUE ? position.generateFoxMoves(buffer) : position.generateHoundMoves(buffer);
+        return store(key, position, turn, Arrays.copyOf(buffer, count), -1, 0, 0);
+    }
+
+    // records a search result, a shallower one than what is cached already is ignored
+    public void putSearchResult(BitboardPosition position, Square turn, int bestMove, int score, int depth) {
+        Entry entry = getMoves(position, turn);
+        if (bestMove != -1 && (!entry.hasSearchResult() || depth >= entry.depth)) {
+            store(entry.key, position, turn, entry.moves, bestMove, score, depth);
+        }
+    }
+
+    private Entry store(long key, BitboardPosition position, Square turn, int[] moves, int bestMove, int score, int depth) {
+        Entry entry = new Entry(key, position, turn, moves, bestMove, score, depth);
+        int set = setOf(key);
+        int first = set * WAYS;
+        synchronized (locks[set & (LOCK_STRIPES - 1)]) {
+            int victim = -1;
+            for (int slot = first; slot < first + WAYS; slot++) {
+                Entry old = slots.get(slot);
+                if (old == null || old.matches(key, position, turn)) {
+                    victim = slot;
+                    break;
+                }
+            }
+            if (victim == -1) {
+                victim = advanceHand(set);
+            }
+            slots.set(victim, entry);
+            referenced[victim] = true;
+        }
+        return entry;
+    }
+
+    private int advanceHand(int set) {
+        int first = set * WAYS;
+        while (true) {
+            int slot = first + hands[set];
+            hands[set] = (byte) ((hands[set] + 1) % WAYS);
+            if (!referenced[slot]) {
+                return slot;
+            }
+            referenced[slot] = false;
+        }
+    }
+
+    private int setOf(long key) {
+        return (int) (key ^ key >>> 32) & setMask;
+    }
+}
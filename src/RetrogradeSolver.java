@@ -0,0 +1,245 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Solves Fox and Hounds completely by retrograde analysis.
+//
+// Round 0 marks the finished positions. Round r then resolves every position that wins in r plies
+// (some move reaches a position lost for the opponent) or loses in r plies (every move reaches a
+// position won for the opponent). Each round only reads results of earlier rounds, so the hound sets
+// are split into partitions that are solved in parallel without locking. Positions that are never
+// resolved can't be forced either way and stay draws.
+//
+// usage: java RetrogradeSolver [threads]
+public class RetrogradeSolver {
+
+    private static final int PARTITIONS_PER_THREAD = 8;
+
+    private int threadCount;
+    private byte[] values;
+    private int[] houndSets;
+
+    public RetrogradeSolver(int threadCount) {
+        this.threadCount = threadCount;
+    }
+
+    public static void main(String[] args) {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        long start = System.nanoTime();
+        Tablebase tablebase = new RetrogradeSolver(threads).solve();
+        long millis = (System.nanoTime() - start) / 1_000_000;
+
+        long wins = 0, losses = 0, draws = 0, reachable = 0;
+        for (int index = 0; index < Tablebase.POSITION_COUNT; index++) {
+            if (!tablebase.isReachable(index)) {
+                continue;
+            }
+            reachable++;
+            byte value = tablebase.getValue(index);
+            if (Tablebase.isWin(value)) {
+                wins++;
+            } else if (Tablebase.isLoss(value)) {
+                losses++;
+            } else {
+                draws++;
+            }
+        }
+        BitboardPosition startPosition = new BitboardPosition();
+        startPosition.setStartPosition();
+        System.out.println("solved " + Tablebase.POSITION_COUNT + " slots in " + millis + " ms on " + threads + " threads");
+        System.out.println("reachable: " + reachable + " (side to move wins: " + wins + ", loses: " + losses + ", draws: " + draws + ")");
+        System.out.println("start, BLUE to move: BLUE " + tablebase.describe(startPosition, Square.BLUE));
+        System.out.println("start, RED to move: RED " + tablebase.describe(startPosition, Square.RED));
+    }
+
+    public Tablebase solve() {
+        values = new byte[Tablebase.POSITION_COUNT];
+        houndSets = new int[Tablebase.HOUND_SET_COUNT];
+        for (int rank = 0; rank < houndSets.length; rank++) {
+            houndSets[rank] = Tablebase.unrankHounds(rank);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount, r -> {
+            Thread thread = new Thread(r, "retrograde-solver");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            runRound(executor, 0);
+            for (int round = 1; runRound(executor, round); round++) {
+            }
+        } finally {
+            executor.shutdown();
+        }
+        return new Tablebase(values, findReachable());
+    }
+
+    // returns whether any position got resolved in this round
+    private boolean runRound(ExecutorService executor, int round) {
+        int partitionCount = threadCount * PARTITIONS_PER_THREAD;
+        int partitionSize = (houndSets.length + partitionCount - 1) / partitionCount;
+        List<Callable<Boolean>> tasks = new ArrayList<>();
+        for (int first = 0; first < houndSets.length; first += partitionSize) {
+            int from = first;
+            int to = Math.min(first + partitionSize, houndSets.length);
+            tasks.add(() -> solvePartition(from, to, round));
+        }
+        boolean changed = false;
+        try {
+            for (Future<Boolean> result : executor.invokeAll(tasks)) {
+                changed |= result.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Solver interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Solver partition failed", e.getCause());
+        }
+        return changed;
+    }
+
+    private boolean solvePartition(int fromRank, int toRank, int round) {
+        boolean changed = false;
+        for (int rank = fromRank; rank < toRank; rank++) {
+            int hounds = houndSets[rank];
+            for (int foxSquare = 0; foxSquare < BitboardPosition.SQUARE_COUNT; foxSquare++) {
+                if ((hounds & (1 << foxSquare)) != 0) {
+                    continue;
+                }
+                for (int side = 0; side < 2; side++) {
+                    boolean foxToMove = side == 1;
+                    int index = Tablebase.index(rank, foxSquare, foxToMove);
+                    if (values[index] != Tablebase.DRAW) {
+                        continue;
+                    }
+                    byte value = round == 0
+                            ? terminalValue(hounds, foxSquare, foxToMove)
+                            : resolve(hounds, foxSquare, foxToMove, round);
+                    if (value != Tablebase.DRAW) {
+                        values[index] = value;
+                        changed = true;
+                    }
+                }
+            }
+        }
+        return changed;
+    }
+
+    private static byte terminalValue(int hounds, int foxSquare, boolean foxToMove) {
+        int fox = 1 << foxSquare;
+        if ((fox & BitboardPosition.TOP_ROW) != 0) {
+            return foxToMove ? Tablebase.win(0) : Tablebase.loss(0);
+        }
+        if (foxToMove && (BitboardPosition.getNeighbours(fox) & ~(hounds | fox) & BitboardPosition.ALL_SQUARES) == 0) {
+            return Tablebase.loss(0);
+        }
+        return Tablebase.DRAW;
+    }
+
+    private byte resolve(int hounds, int foxSquare, boolean foxToMove, int round) {
+        int fox = 1 << foxSquare;
+        int empty = BitboardPosition.ALL_SQUARES & ~(hounds | fox);
+        boolean allWin = true;
+        if (foxToMove) {
+            int targets = BitboardPosition.getNeighbours(fox) & empty;
+            while (targets != 0) {
+                int to = Integer.numberOfTrailingZeros(targets);
+                targets &= targets - 1;
+                byte next = earlierValue(Tablebase.index(Tablebase.rankHounds(hounds), to, false), round);
+                if (Tablebase.isLoss(next)) {
+                    return Tablebase.win(round);
+                }
+                allWin &= Tablebase.isWin(next);
+            }
+            return allWin ? Tablebase.loss(round) : Tablebase.DRAW;
+        }
+
+        int remaining = hounds;
+        boolean anyMove = false;
+        while (remaining != 0) {
+            int from = Integer.numberOfTrailingZeros(remaining);
+            remaining &= remaining - 1;
+            int targets = BitboardPosition.getHoundSteps(from) & empty;
+            while (targets != 0) {
+                int to = Integer.numberOfTrailingZeros(targets);
+                targets &= targets - 1;
+                anyMove = true;
+                int nextHounds = (hounds & ~(1 << from)) | (1 << to);
+                byte next = earlierValue(Tablebase.index(Tablebase.rankHounds(nextHounds), foxSquare, true), round);
+                if (Tablebase.isLoss(next)) {
+                    return Tablebase.win(round);
+                }
+                allWin &= Tablebase.isWin(next);
+            }
+        }
+        if (!anyMove) {
+            // blocked hounds pass, the fox moves next in the same position
+            byte next = earlierValue(Tablebase.index(Tablebase.rankHounds(hounds), foxSquare, true), round);
+            allWin = Tablebase.isWin(next);
+            if (Tablebase.isLoss(next)) {
+                return Tablebase.win(round);
+            }
+        }
+        return allWin ? Tablebase.loss(round) : Tablebase.DRAW;
+    }
+
+    // results written during the current round are ignored so partitions never depend on each other
+    private byte earlierValue(int index, int round) {
+        byte value = values[index];
+        return Tablebase.distance(value) < round ? value : Tablebase.DRAW;
+    }
+
+    // positions reachable from the starting setup with either side moving first
+    private long[] findReachable() {
+        long[] reachable = new long[(Tablebase.POSITION_COUNT + 63) / 64];
+        int[] queue = new int[Tablebase.POSITION_COUNT];
+        int head = 0;
+        int tail = 0;
+        BitboardPosition start = new BitboardPosition();
+        start.setStartPosition();
+        for (Square turn : new Square[]{Square.BLUE, Square.RED}) {
+            int index = Tablebase.index(start, turn);
+            reachable[index >>> 6] |= 1L << index;
+            queue[tail++] = index;
+        }
+
+        int[] moves = new int[BitboardPosition.MAX_MOVES];
+        while (head < tail) {
+            int index = queue[head++];
+            boolean foxToMove = (index & 1) != 0;
+            int foxSquare = (index >>> 1) % BitboardPosition.SQUARE_COUNT;
+            int hounds = houndSets[(index >>> 1) / BitboardPosition.SQUARE_COUNT];
+            if (terminalValue(hounds, foxSquare, foxToMove) != Tablebase.DRAW) {
+                continue;
+            }
+            BitboardPosition position = new BitboardPosition();
+            position.setSquare(BitboardPosition.rowOf(foxSquare), BitboardPosition.colOf(foxSquare), Square.BLUE);
+            for (int square = 0; square < BitboardPosition.SQUARE_COUNT; square++) {
+                if ((hounds & (1 << square)) != 0) {
+                    position.setSquare(BitboardPosition.rowOf(square), BitboardPosition.colOf(square), Square.RED);
+                }
+            }
+            int count = foxToMove ? position.generateFoxMoves(moves) : position.generateHoundMoves(moves);
+            if (count == 0) {
+                count = 1;
+                moves[0] = -1;
+            }
+            for (int i = 0; i < count; i++) {
+                BitboardPosition next = new BitboardPosition(position);
+                if (moves[i] != -1) {
+                    next.makeMove(moves[i]);
+                }
+                int nextIndex = Tablebase.index(next, foxToMove ? Square.RED : Square.BLUE);
+                if ((reachable[nextIndex >>> 6] & (1L << nextIndex)) == 0) {
+                    reachable[nextIndex >>> 6] |= 1L << nextIndex;
+                    queue[tail++] = nextIndex;
+                }
+            }
+        }
+        return reachable;
+    }
+}
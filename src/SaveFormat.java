@@ -0,0 +1,399 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.CRC32;
+
+// Binary .save files.
+//
+// layout (big-endian):
+//   int   magic "FHSV"
+//   byte  format version
+//   byte  side to move, 0 BLUE / 1 RED
+//   int   fox mask
+//   int   hound mask
+//   int   per-turn time in ms
+//   int   BLUE remaining ms
+//   int   RED remaining ms
+// since version 2 followed by the move history:
+//   byte  side to move at the start, 0 BLUE / 1 RED
+//   int   fox mask at the start
+//   int   hound mask at the start
+//   int   number of logged plies N
+//   int   plies on the board (the rest can be redone)
+//   short[N] moves, 0xFFFF for a passed turn
+// and finally:
+//   int   CRC32 of all preceding bytes
+//
+// Version 3 holds a game on another BoardVariant board. It always starts from the variant's start
+// position, so the board and the history replace both positions:
+//   int   magic "FHSV"
+//   byte  format version 3
+//   short rows, short cols, short hounds
+//   byte  side to move at the start, 0 BLUE / 1 RED
+//   int   per-turn time in ms, then BLUE and RED remaining ms
+//   int   number of logged plies N
+//   int   plies on the board
+//   short[N] moves, 0xFFFF for a passed turn
+//   int   CRC32 of all preceding bytes
+//
+// Version 1 files (no history) are still read, the history then starts at the saved position.
+// Files written before this format (one writeUTF token per board cell) are still read.
+// They start with the high byte of a UTF length, which is always 0, while binary files start with 'F'.
+public class SaveFormat {
+
+    public static final int MAGIC = 0x46485356;
+    public static final int VERSION = 2;
+    public static final int VARIANT_VERSION = 3;
+    private static final int POSITION_SIZE = 4 + 1 + 1 + 4 * 5;
+    private static final int HISTORY_HEADER_SIZE = 1 + 4 * 4;
+    private static final int VARIANT_HEADER_SIZE = 4 + 1 + 2 * 3 + 1 + 4 * 5;
+    private static final int PASS_ON_DISK = 0xFFFF;
+
+    public static class InvalidFileException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        public InvalidFileException(String message) {
+            super(message);
+        }
+    }
+
+    public static class SavedGame {
+
+        private BitboardPosition position;
+        private Square turn;
+        private int turnMillis;
+        private int blueRemainingMillis;
+        private int redRemainingMillis;
+        private MoveLog log;
+        private VariantGame variantGame;
+
+        public SavedGame(BitboardPosition position, Square turn, int turnMillis, int blueRemainingMillis, int redRemainingMillis) {
+            this(position, turn, turnMillis, blueRemainingMillis, redRemainingMillis, new MoveLog(position, turn));
+        }
+
+        public SavedGame(BitboardPosition position, Square turn, int turnMillis, int blueRemainingMillis, int redRemainingMillis, MoveLog log) {
+            this.position = position;
+            this.turn = turn;
+            this.turnMillis = turnMillis;
+            this.blueRemainingMillis = blueRemainingMillis;
+            this.redRemainingMillis = redRemainingMillis;
+            this.log = log;
+        }
+
+        // a game on another board than BoardVariant.CLASSIC, kept by the SavedGame
+        public SavedGame(VariantGame variantGame, int turnMillis, int blueRemainingMillis, int redRemainingMillis) {
+            this.variantGame = variantGame;
+            turn = variantGame.getTurn();
+            this.turnMillis = turnMillis;
+            this.blueRemainingMillis = blueRemainingMillis;
+            this.redRemainingMillis = redRemainingMillis;
+        }
+
+        // null for a variant game, like getLog
+        public BitboardPosition getPosition() {
+            return position;
+        }
+        public Square getTurn() {
+            return turn;
+        }
+        // 0 when the file holds no clock state (legacy saves)
+        public int getTurnMillis() {
+            return turnMillis;
+        }
+        public int getRemainingMillis(Square side) {
+            return side == Square.BLUE ? blueRemainingMillis : redRemainingMillis;
+        }
+        public MoveLog getLog() {
+            return log;
+        }
+        // null for a game on the 8x8 board
+        public VariantGame getVariantGame() {
+            return variantGame;
+        }
+    }
+
+    public static void write(SavedGame game, Path path) throws IOException {
+        try (OutputStream os = new BufferedOutputStream(Files.newOutputStream(path))) {
+            write(game, os);
+        }
+    }
+
+    public static void write(SavedGame game, OutputStream out) throws IOException {
+        out.write(encode(game));
+    }
+
+    // the whole file, for callers doing their own I/O
+    public static byte[] encode(SavedGame game) {
+        if (game.getVariantGame() != null) {
+            return encodeVariant(game);
+        }
+        MoveLog log = game.getLog();
+        int bodySize = POSITION_SIZE + HISTORY_HEADER_SIZE + 2 * log.size();
+        ByteBuffer buffer = ByteBuffer.allocate(bodySize + 4);
+        buffer.putInt(MAGIC);
+        buffer.put((byte) VERSION);
+        buffer.put((byte) (game.getTurn() == Square.BLUE ? 0 : 1));
+        buffer.putInt(game.getPosition().getFox());
+        buffer.putInt(game.getPosition().getHounds());
+        buffer.putInt(game.getTurnMillis());
+        buffer.putInt(game.getRemainingMillis(Square.BLUE));
+        buffer.putInt(game.getRemainingMillis(Square.RED));
+        buffer.put((byte) (log.getStartTurn() == Square.BLUE ? 0 : 1));
+        buffer.putInt(log.getStartPosition().getFox());
+        buffer.putInt(log.getStartPosition().getHounds());
+        buffer.putInt(log.size());
+        buffer.putInt(log.getPly());
+        for (int ply = 0; ply < log.size(); ply++) {
+            int move = log.getMove(ply);
+            buffer.putShort((short) (move == MoveLog.PASS ? PASS_ON_DISK : move));
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, bodySize);
+        buffer.putInt((int) crc.getValue());
+        return buffer.array();
+    }
+
+    private static byte[] encodeVariant(SavedGame game) {
+        VariantGame variantGame = game.getVariantGame();
+        BoardVariant variant = variantGame.getVariant();
+        int bodySize = VARIANT_HEADER_SIZE + 2 * variantGame.getHistorySize();
+        ByteBuffer buffer = ByteBuffer.allocate(bodySize + 4);
+        buffer.putInt(MAGIC);
+        buffer.put((byte) VARIANT_VERSION);
+        buffer.putShort((short) variant.getRows());
+        buffer.putShort((short) variant.getCols());
+        buffer.putShort((short) variant.getHoundCount());
+        buffer.put((byte) (variantGame.getStartTurn() == Square.BLUE ? 0 : 1));
+        buffer.putInt(game.getTurnMillis());
+        buffer.putInt(game.getRemainingMillis(Square.BLUE));
+        buffer.putInt(game.getRemainingMillis(Square.RED));
+        buffer.putInt(variantGame.getHistorySize());
+        buffer.putInt(variantGame.getPly());
+        for (int ply = 0; ply < variantGame.getHistorySize(); ply++) {
+            int move = variantGame.getMove(ply);
+            buffer.putShort((short) (move == MoveLog.PASS ? PASS_ON_DISK : move));
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, bodySize);
+        buffer.putInt((int) crc.getValue());
+        return buffer.array();
+    }
+
+    public static SavedGame read(Path path) throws IOException {
+        try (InputStream is = new BufferedInputStream(Files.newInputStream(path))) {
+            return read(is);
+        }
+    }
+
+    public static SavedGame read(InputStream in) throws IOException {
+        return decode(in.readAllBytes());
+    }
+
+    // parses and validates a whole file read by the caller
+    public static SavedGame decode(byte[] file) throws IOException {
+        if (file.length == 0) {
+            throw new InvalidFileException("Empty file");
+        }
+        return file[0] == 0 ? readLegacy(file) : readBinary(file);
+    }
+
+    private static SavedGame readBinary(byte[] file) throws IOException {
+        if (file.length < POSITION_SIZE + 4) {
+            throw new InvalidFileException("File is truncated");
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(file);
+        if (buffer.getInt() != MAGIC) {
+            throw new InvalidFileException("Not a save file");
+        }
+        int version = buffer.get();
+        if (version != 1 && version != VERSION && version != VARIANT_VERSION) {
+            throw new InvalidFileException("Unsupported save version " + version);
+        }
+        int bodySize = file.length - 4;
+        CRC32 crc = new CRC32();
+        crc.update(file, 0, bodySize);
+        if ((int) crc.getValue() != buffer.getInt(bodySize)) {
+            throw new InvalidFileException("Checksum mismatch");
+        }
+
+        if (version == VARIANT_VERSION) {
+            return readVariant(buffer, bodySize);
+        }
+        Square turn = readTurn(buffer);
+        BitboardPosition position = readPosition(buffer);
+        int turnMillis = buffer.getInt();
+        int blueRemainingMillis = buffer.getInt();
+        int redRemainingMillis = buffer.getInt();
+        if (version == 1) {
+            if (bodySize != POSITION_SIZE) {
+                throw new InvalidFileException("Unexpected file size " + file.length);
+            }
+            return new SavedGame(position, turn, turnMillis, blueRemainingMillis, redRemainingMillis);
+        }
+
+        if (bodySize < POSITION_SIZE + HISTORY_HEADER_SIZE) {
+            throw new InvalidFileException("File is truncated");
+        }
+        Square startTurn = readTurn(buffer);
+        BitboardPosition startPosition = readPosition(buffer);
+        int size = buffer.getInt();
+        int cursor = buffer.getInt();
+        if (size < 0 || bodySize != POSITION_SIZE + HISTORY_HEADER_SIZE + 2 * size || cursor < 0 || cursor > size) {
+            throw new InvalidFileException("Invalid move history");
+        }
+        int[] moves = new int[size];
+        for (int ply = 0; ply < size; ply++) {
+            int move = buffer.getShort() & 0xFFFF;
+            moves[ply] = move == PASS_ON_DISK ? MoveLog.PASS : move;
+        }
+        MoveLog log = new MoveLog(startPosition, startTurn, moves, size, cursor);
+        checkHistory(log, position, turn);
+        return new SavedGame(position, turn, turnMillis, blueRemainingMillis, redRemainingMillis, log);
+    }
+
+    // the history is replayed from the variant's start position, which checks every ply
+    private static SavedGame readVariant(ByteBuffer buffer, int bodySize) throws InvalidFileException {
+        if (bodySize < VARIANT_HEADER_SIZE) {
+            throw new InvalidFileException("File is truncated");
+        }
+        BoardVariant variant;
+        try {
+            variant = new BoardVariant(buffer.getShort(), buffer.getShort(), buffer.getShort());
+        } catch (IllegalArgumentException e) {
+            throw new InvalidFileException(e.getMessage());
+        }
+        if (variant.isClassic()) {
+            throw new InvalidFileException("8x8 games are saved as version " + VERSION);
+        }
+        Square startTurn = readTurn(buffer);
+        int turnMillis = buffer.getInt();
+        int blueRemainingMillis = buffer.getInt();
+        int redRemainingMillis = buffer.getInt();
+        int size = buffer.getInt();
+        int cursor = buffer.getInt();
+        if (size < 0 || bodySize != VARIANT_HEADER_SIZE + 2 * size || cursor < 0 || cursor > size) {
+            throw new InvalidFileException("Invalid move history");
+        }
+        int[] moves = new int[size];
+        for (int ply = 0; ply < size; ply++) {
+            int move = buffer.getShort() & 0xFFFF;
+            moves[ply] = move == PASS_ON_DISK ? MoveLog.PASS : move;
+        }
+        VariantGame game = new VariantGame(variant);
+        try {
+            game.loadGame(startTurn, moves, size, cursor);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidFileException("Invalid move history: " + e.getMessage());
+        }
+        return new SavedGame(game, turnMillis, blueRemainingMillis, redRemainingMillis);
+    }
+
+    // the logged plies have to be legal and lead to the saved position
+    private static void checkHistory(MoveLog log, BitboardPosition position, Square turn) throws InvalidFileException {
+        GameEngine replay = new GameEngine();
+        try {
+            replay.loadGame(log);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidFileException("Invalid move history: " + e.getMessage());
+        }
+        if (!replay.getPosition().equals(position) || replay.getTurn() != turn) {
+            throw new InvalidFileException("Move history does not match the position");
+        }
+    }
+
+    private static Square readTurn(ByteBuffer buffer) throws InvalidFileException {
+        int turnByte = buffer.get();
+        if (turnByte != 0 && turnByte != 1) {
+            throw new InvalidFileException("Invalid side to move");
+        }
+        return turnByte == 0 ? Square.BLUE : Square.RED;
+    }
+
+    private static BitboardPosition readPosition(ByteBuffer buffer) throws InvalidFileException {
+        int fox = buffer.getInt();
+        int hounds = buffer.getInt();
+        if (!isValidPosition(fox, hounds)) {
+            throw new InvalidFileException("Invalid position");
+        }
+        BitboardPosition position = new BitboardPosition();
+        setPieces(position, fox, Square.BLUE);
+        setPieces(position, hounds, Square.RED);
+        return position;
+    }
+
+    // one fox and HOUND_COUNT hounds on distinct board squares
+    static boolean isValidPosition(int fox, int hounds) {
+        return Integer.bitCount(fox) == 1 && Integer.bitCount(hounds) == BitboardPosition.HOUND_COUNT && (fox & hounds) == 0
+                && ((fox | hounds) & ~BitboardPosition.ALL_SQUARES) == 0;
+    }
+
+    // legacy files: ROW_COUNT lines of COL_COUNT tokens ("null", "EMPTY", "RED", "BLUE") each followed
+    // by a "\n" token, then the side to move
+    private static SavedGame readLegacy(byte[] file) throws IOException {
+        DataInputStream dis = new DataInputStream(new ByteArrayInputStream(file));
+        BitboardPosition position = new BitboardPosition();
+        int blueCounter = 0, redCounter = 0;
+        try {
+            for (int row = 0; row < GameParams.ROW_COUNT; row++) {
+                for (int col = 0; col < GameParams.COL_COUNT; col++) {
+                    String token = dis.readUTF();
+                    if (!BitboardPosition.isDarkSquare(row, col)) {
+                        if (!token.equals("null")) {
+                            throw new InvalidFileException("Piece on a light square");
+                        }
+                        continue;
+                    }
+                    Square square = parseSquare(token);
+                    if (square == Square.BLUE) {
+                        blueCounter++;
+                    } else if (square == Square.RED) {
+                        redCounter++;
+                    }
+                    position.setSquare(row, col, square);
+                }
+                if (!dis.readUTF().equals("\n")) {
+                    throw new InvalidFileException("Missing line break");
+                }
+            }
+            String turn = dis.readUTF();
+            if (blueCounter != 1 || redCounter != BitboardPosition.HOUND_COUNT) {
+                throw new InvalidFileException("Invalid piece counts");
+            }
+            if (!(turn.equals("RED") || turn.equals("BLUE")) || dis.available() > 0) {
+                throw new InvalidFileException("Invalid side to move");
+            }
+            return new SavedGame(position, Square.valueOf(turn), 0, 0, 0);
+        } catch (EOFException e) {
+            throw new InvalidFileException("File is truncated");
+        }
+    }
+
+    private static Square parseSquare(String token) throws InvalidFileException {
+        switch (token) {
+            case "EMPTY":
+                return Square.EMPTY;
+            case "RED":
+                return Square.RED;
+            case "BLUE":
+                return Square.BLUE;
+            default:
+                throw new InvalidFileException("Unknown square " + token);
+        }
+    }
+
+    private static void setPieces(BitboardPosition position, int pieces, Square piece) {
+        while (pieces != 0) {
+            int square = Integer.numberOfTrailingZeros(pieces);
+            pieces &= pieces - 1;
+            position.setSquare(BitboardPosition.rowOf(square), BitboardPosition.colOf(square), piece);
+        }
+    }
+}
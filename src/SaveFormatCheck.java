@@ -0,0 +1,200 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+// Round-trips seeded random games through SaveFormat and checks that damaged files are rejected.
+//
+// Every game is saved at a random point of its history (some plies undone), read back and compared
+// field by field. Then single bytes of the file are flipped, which the checksum has to catch, and
+// an illegal ply is put into the redo part of the history behind a valid checksum, which the
+// history replay has to catch. Loading a finished game has to report it as over. Every fourth game
+// is also played on one of VARIANTS and round-tripped through the version 3 record.
+//
+// usage: java SaveFormatCheck [games] [seed]
+public class SaveFormatCheck {
+
+    private static final String[] VARIANTS = {"10x10", "12x12:8", "6x8:3"};
+
+    public static void main(String[] args) throws IOException {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 1;
+        Random random = new Random(seed);
+        int[] moves = new int[BitboardPosition.MAX_MOVES];
+        int failures = 0;
+        for (int game = 0; game < games; game++) {
+            GameEngine engine = new GameEngine();
+            engine.newGame(random.nextBoolean() ? Square.BLUE : Square.RED);
+            while (!engine.isGameOver()) {
+                int count = engine.generateMoves(moves);
+                if (count == 0) {
+                    engine.passTurn();
+                } else {
+                    engine.applyMove(moves[random.nextInt(count)]);
+                }
+            }
+            engine.goToPly(random.nextInt(engine.getMoveLog().size() + 1));
+            SaveFormat.SavedGame saved = new SaveFormat.SavedGame(new BitboardPosition(engine.getPosition()), engine.getTurn(),
+                    random.nextInt(20_000), random.nextInt(20_000), random.nextInt(20_000), engine.getMoveLog());
+            byte[] file = SaveFormat.encode(saved);
+
+            String problem = compare(saved, SaveFormat.read(new ByteArrayInputStream(file)));
+            if (problem == null) {
+                byte[] damaged = file.clone();
+                damaged[random.nextInt(damaged.length)] ^= 1 << random.nextInt(8);
+                try {
+                    SaveFormat.read(new ByteArrayInputStream(damaged));
+                    problem = "damaged file was accepted";
+                } catch (SaveFormat.InvalidFileException e) {
+                    // expected
+                }
+            }
+            if (problem == null) {
+                problem = checkIllegalRedo(saved);
+            }
+            if (problem == null) {
+                problem = checkFinishedLoad(engine.getMoveLog());
+            }
+            if (problem == null) {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                SaveFormat.write(saved, out);
+                if (out.size() != file.length) {
+                    problem = "write and encode differ";
+                }
+            }
+            if (problem == null && game % 4 == 0) {
+                problem = checkVariantGame(BoardVariant.parse(VARIANTS[random.nextInt(VARIANTS.length)]), random);
+            }
+            if (problem != null) {
+                System.out.println("game " + game + ": " + problem);
+                failures++;
+            }
+        }
+        System.out.println(games + " games checked, " + failures + " failures");
+        if (failures > 0) {
+            System.exit(1);
+        }
+    }
+
+    // the last ply becomes a fox jump to the top row, the file has to be rejected even though that
+    // ply is only reached by redo
+    private static String checkIllegalRedo(SaveFormat.SavedGame saved) throws IOException {
+        MoveLog log = saved.getLog();
+        if (log.getPly() == log.size()) {
+            return null;
+        }
+        int[] moves = new int[log.size()];
+        for (int ply = 0; ply < moves.length; ply++) {
+            moves[ply] = log.getMove(ply);
+        }
+        int last = moves.length - 1;
+        BitboardPosition start = log.getStartPosition();
+        moves[last] = BitboardPosition.packMove(start.getFoxSquare(), 0);
+        MoveLog tampered = new MoveLog(start, log.getStartTurn(), moves, moves.length, log.getPly());
+        byte[] file = SaveFormat.encode(new SaveFormat.SavedGame(saved.getPosition(), saved.getTurn(),
+                saved.getTurnMillis(), saved.getRemainingMillis(Square.BLUE), saved.getRemainingMillis(Square.RED), tampered));
+        try {
+            SaveFormat.read(new ByteArrayInputStream(file));
+            return "illegal redo ply was accepted";
+        } catch (SaveFormat.InvalidFileException e) {
+            return null;
+        }
+    }
+
+    private static String checkFinishedLoad(MoveLog log) {
+        int[] moves = new int[log.size()];
+        for (int ply = 0; ply < moves.length; ply++) {
+            moves[ply] = log.getMove(ply);
+        }
+        GameEngine engine = new GameEngine();
+        Square[] announced = new Square[1];
+        engine.addListener(new GameEngineListener() {
+            @Override
+            public void positionReset() {
+            }
+            @Override
+            public void pieceMoved(Square piece, int from, int to) {
+            }
+            @Override
+            public void turnChanged(Square turn) {
+            }
+            @Override
+            public void gameOver(Square winner) {
+                announced[0] = winner;
+            }
+        });
+        engine.loadGame(new MoveLog(log.getStartPosition(), log.getStartTurn(), moves, moves.length, moves.length));
+        return announced[0] == engine.getWinner() ? null : "loaded game reported winner " + announced[0] + ", engine has " + engine.getWinner();
+    }
+
+    // a random game on the variant saved at a random ply, read back, then damaged
+    private static String checkVariantGame(BoardVariant variant, Random random) throws IOException {
+        VariantGame game = new VariantGame(variant);
+        game.newGame(random.nextBoolean() ? Square.BLUE : Square.RED);
+        int[] moves = new int[variant.getMaxMoves()];
+        while (!game.isGameOver() && game.getPly() < 400) {
+            int count = game.generateMoves(moves);
+            if (count == 0) {
+                game.passTurn();
+            } else {
+                game.applyMove(moves[random.nextInt(count)]);
+            }
+        }
+        for (int undo = random.nextInt(game.getPly() + 1); undo > 0; undo--) {
+            game.undo();
+        }
+        SaveFormat.SavedGame saved = new SaveFormat.SavedGame(game.copy(), random.nextInt(20_000), random.nextInt(20_000),
+                random.nextInt(20_000));
+        byte[] file = SaveFormat.encode(saved);
+        VariantGame read = SaveFormat.read(new ByteArrayInputStream(file)).getVariantGame();
+        if (read == null || !read.getVariant().toString().equals(variant.toString())) {
+            return variant + ": board differs";
+        }
+        if (read.getStartTurn() != game.getStartTurn() || read.getTurn() != game.getTurn() || read.getPly() != game.getPly()
+                || read.getHistorySize() != game.getHistorySize() || read.getWinner() != game.getWinner()) {
+            return variant + ": history header differs";
+        }
+        for (int ply = 0; ply < game.getHistorySize(); ply++) {
+            if (read.getMove(ply) != game.getMove(ply)) {
+                return variant + ": move " + ply + " differs";
+            }
+        }
+        for (int square = 0; square < variant.getSquareCount(); square++) {
+            if (read.getPosition().squareAt(square) != game.getPosition().squareAt(square)) {
+                return variant + ": square " + square + " differs";
+            }
+        }
+        byte[] damaged = file.clone();
+        damaged[random.nextInt(damaged.length)] ^= 1 << random.nextInt(8);
+        try {
+            SaveFormat.read(new ByteArrayInputStream(damaged));
+            return variant + ": damaged file was accepted";
+        } catch (SaveFormat.InvalidFileException e) {
+            return null;
+        }
+    }
+
+    // null when the read game matches the saved one
+    private static String compare(SaveFormat.SavedGame saved, SaveFormat.SavedGame read) {
+        if (!read.getPosition().equals(saved.getPosition()) || read.getTurn() != saved.getTurn()) {
+            return "position differs";
+        }
+        if (read.getTurnMillis() != saved.getTurnMillis()
+                || read.getRemainingMillis(Square.BLUE) != saved.getRemainingMillis(Square.BLUE)
+                || read.getRemainingMillis(Square.RED) != saved.getRemainingMillis(Square.RED)) {
+            return "clock differs";
+        }
+        MoveLog a = saved.getLog();
+        MoveLog b = read.getLog();
+        if (a.size() != b.size() || a.getPly() != b.getPly() || a.getStartTurn() != b.getStartTurn()
+                || !a.getStartPosition().equals(b.getStartPosition())) {
+            return "history header differs";
+        }
+        for (int ply = 0; ply < a.size(); ply++) {
+            if (a.getMove(ply) != b.getMove(ply)) {
+                return "move " + ply + " differs";
+            }
+        }
+        return null;
+    }
+}
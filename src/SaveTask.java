@@ -0,0 +1,65 @@
+import javafx.concurrent.Task;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+// Writes a save file off the FX thread.
+//
+// The game has to be a snapshot nobody changes meanwhile. The bytes go to a temporary file next to
+// the target in CHUNK_SIZE writes (progress and cancellation are checked between them), which then
+// replaces the target in one move, so a cancelled or failed save leaves the old file untouched.
+public class SaveTask extends Task<Void> {
+
+    static final int CHUNK_SIZE = 64 * 1024;
+
+    private SaveFormat.SavedGame game;
+    private Path path;
+
+    public SaveTask(SaveFormat.SavedGame game, Path path) {
+        this.game = game;
+        this.path = path;
+    }
+
+    @Override
+    protected Void call() throws IOException {
+        long start = System.nanoTime();
+        GameMetrics.SAVES.increment();
+        ByteBuffer bytes = ByteBuffer.wrap(SaveFormat.encode(game));
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        boolean moved = false;
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                while (bytes.hasRemaining()) {
+                    if (isCancelled()) {
+                        return null;
+                    }
+                    ByteBuffer chunk = bytes.slice();
+                    chunk.limit(Math.min(chunk.remaining(), CHUNK_SIZE));
+                    bytes.position(bytes.position() + channel.write(chunk));
+                    updateProgress(bytes.position(), bytes.capacity());
+                }
+                channel.force(true);
+            }
+            if (isCancelled()) {
+                return null;
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            moved = true;
+        } catch (IOException e) {
+            GameMetrics.IO_FAILURES.increment();
+            throw e;
+        } finally {
+            if (!moved) {
+                Files.deleteIfExists(temp);
+            }
+            GameMetrics.recordSince(GameMetrics.SAVE_NANOS, start);
+        }
+        return null;
+    }
+}
@@ -0,0 +1,78 @@
+import java.util.ArrayList;
+import java.util.Random;
+
+// Measures how the parallel search scales: for 1..N threads every benchmark position is
+// searched to the same fixed depth, speedup is the 1-thread time divided by the N-thread time.
+//
+// usage: java SearchBenchmark [maxThreads] [depth]
+public class SearchBenchmark {
+
+    private static final long SEED = 20231017L;
+    private static final int POSITION_COUNT = 8;
+    private static final int TABLE_BITS = 22;
+    // generous limit, the searches are meant to stop on depth
+    private static final long TIME_LIMIT_MILLIS = 600_000;
+
+    public static void main(String[] args) {
+        int maxThreads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        int depth = args.length > 1 ? Integer.parseInt(args[1]) : 24;
+
+        ArrayList<BitboardPosition> positions = new ArrayList<>();
+        ArrayList<Square> turns = new ArrayList<>();
+        createPositions(positions, turns);
+
+        // one untimed pass so the 1-thread run is not measured while the JIT is still compiling
+        runPositions(new ParallelSearcher(1, TABLE_BITS), positions, turns, depth);
+
+        System.out.println("positions: " + positions.size() + ", depth: " + depth
+                + ", available cores: " + Runtime.getRuntime().availableProcessors());
+        System.out.println("threads\ttime ms\tspeedup\tnodes\tnodes/s");
+        double baseline = 0;
+        for (int threads = 1; threads <= maxThreads; threads++) {
+            ParallelSearcher searcher = new ParallelSearcher(threads, TABLE_BITS);
+            long start = System.nanoTime();
+            long nodes = runPositions(searcher, positions, turns, depth);
+            double millis = (System.nanoTime() - start) / 1e6;
+            searcher.shutdown();
+            if (threads == 1) {
+                baseline = millis;
+            }
+            System.out.println(String.format("%d\t%.0f\t%.2f\t%d\t%.0f",
+                    threads, millis, baseline / millis, nodes, nodes / millis * 1000));
+        }
+    }
+
+    private static long runPositions(ParallelSearcher searcher, ArrayList<BitboardPosition> positions,
+                                     ArrayList<Square> turns, int depth) {
+        long nodes = 0;
+        for (int i = 0; i < positions.size(); i++) {
+            searcher.clearTable();
+            searcher.findBestMove(positions.get(i), turns.get(i), TIME_LIMIT_MILLIS, depth);
+            nodes += searcher.getNodes();
+        }
+        return nodes;
+    }
+
+    // a fixed set of positions reached by seeded random play from the starting setup
+    private static void createPositions(ArrayList<BitboardPosition> positions, ArrayList<Square> turns) {
+        Random random = new Random(SEED);
+        int[] moves = new int[BitboardPosition.MAX_MOVES];
+        while (positions.size() < POSITION_COUNT) {
+            GameEngine engine = new GameEngine();
+            engine.newGame(Square.RED);
+            int plies = 2 * positions.size() + random.nextInt(4);
+            for (int ply = 0; ply < plies && !engine.isGameOver(); ply++) {
+                int count = engine.generateMoves(moves);
+                if (count == 0) {
+                    engine.passTurn();
+                } else {
+                    engine.applyMove(moves[random.nextInt(count)]);
+                }
+            }
+            if (!engine.isGameOver()) {
+                positions.add(new BitboardPosition(engine.getPosition()));
+                turns.add(engine.getTurn());
+            }
+        }
+    }
+}
@@ -0,0 +1,27 @@
+// What AlphaBetaSearcher needs from a position, so the same search runs on the 8x8 BitboardPosition
+// and on the BoardVariant positions. Moves are packed like BitboardPosition.packMove.
+public interface SearchPosition {
+
+    // evaluation once no hound is ahead of the fox, minus the rows it still has to walk
+    int FREE_FOX_SCORE = 5000;
+
+    SearchPosition copy();
+
+    int getSquareCount();
+    // length of the move buffers the generators write into
+    int getMaxMoves();
+    int generateFoxMoves(int[] moves);
+    int generateHoundMoves(int[] moves);
+    void move(int from, int to);
+
+    boolean hasFoxReachedTop();
+    boolean isFoxTrapped();
+    // static evaluation from the fox's point of view
+    int evaluateForFox();
+
+    // Zobrist hash including the side to move, and its change by a move (which passes the turn too)
+    long hash(boolean foxToMove);
+    long moveKey(boolean foxMove, int from, int to);
+    // change of the hash when blocked hounds pass
+    long passKey();
+}
@@ -0,0 +1,236 @@
+import javafx.animation.AnimationTimer;
+import javafx.application.Application;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.Scene;
+import javafx.scene.control.Label;
+import javafx.scene.control.ScrollPane;
+import javafx.scene.layout.BorderPane;
+import javafx.scene.layout.TilePane;
+import javafx.scene.layout.VBox;
+import javafx.scene.text.Font;
+import javafx.stage.Stage;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// Tiles many computer-vs-computer games for watching.
+//
+// Every board has its own GameEngine and searcher, driven by a shared pool of worker threads that
+// only publish the position as one packed long per board. An AnimationTimer reads those once per
+// frame and repaints the boards whose value changed, so however many moves land between two frames
+// they cost one Canvas repaint and no Platform.runLater calls.
+//
+// usage: java SpectatorDashboard [boards] [moveMillis] [pauseMillis]
+public class SpectatorDashboard extends Application {
+
+    private static final int DEFAULT_BOARDS = 16;
+    private static final int DEFAULT_MOVE_MILLIS = 50;
+    private static final int DEFAULT_PAUSE_MILLIS = 200;
+    // plies played at random before the searchers take over, otherwise every game is the same
+    private static final int RANDOM_OPENING_PLIES = 4;
+    private static final int SEARCH_TABLE_BITS = 14;
+    private static final double BOARD_SIZE = 160;
+
+    public static void main(String[] args) {
+        launch(args);
+    }
+
+    private int boardCount;
+    private int moveMillis;
+    private int pauseMillis;
+    private ScheduledExecutorService players;
+    // fox mask in the high 32 bits, hounds in the low ones, written by the players, read each frame
+    private AtomicLongArray published;
+    // per board: BLUE wins, RED wins
+    private AtomicLongArray results;
+    // per board: why its player stopped, null while it plays
+    private AtomicReferenceArray<String> failures;
+
+    @Override
+    public void start(Stage stage) {
+        List<String> args = getParameters().getRaw();
+        boardCount = args.size() > 0 ? Integer.parseInt(args.get(0)) : DEFAULT_BOARDS;
+        moveMillis = args.size() > 1 ? Integer.parseInt(args.get(1)) : DEFAULT_MOVE_MILLIS;
+        pauseMillis = args.size() > 2 ? Integer.parseInt(args.get(2)) : DEFAULT_PAUSE_MILLIS;
+        published = new AtomicLongArray(boardCount);
+        results = new AtomicLongArray(2 * boardCount);
+        failures = new AtomicReferenceArray<>(boardCount);
+
+        CanvasBoardRenderer[] boards = new CanvasBoardRenderer[boardCount];
+        Label[] scores = new Label[boardCount];
+        TilePane tiles = new TilePane();
+        tiles.setPadding(new Insets(10));
+        tiles.setHgap(10);
+        tiles.setVgap(10);
+        for (int i = 0; i < boardCount; i++) {
+            boards[i] = new CanvasBoardRenderer(new Insets(2));
+            boards[i].setPrefSize(BOARD_SIZE, BOARD_SIZE);
+            scores[i] = new Label();
+            VBox tile = new VBox(boards[i], scores[i]);
+            tile.setAlignment(Pos.CENTER);
+            tiles.getChildren().add(tile);
+        }
+        Label status = new Label();
+        status.setFont(Font.font("Roboto", 18));
+        status.setPadding(new Insets(10));
+        BorderPane root = new BorderPane();
+        root.setTop(status);
+        ScrollPane scroll = new ScrollPane(tiles);
+        scroll.setFitToWidth(true);
+        root.setCenter(scroll);
+
+        startPlayers();
+        new FrameUpdater(boards, scores, status).start();
+
+        stage.setTitle("Fox and Hounds - " + boardCount + " games");
+        stage.setScene(new Scene(root, 1280, 800));
+        stage.setOnCloseRequest(e -> players.shutdownNow());
+        stage.show();
+    }
+
+    // copies the published positions into the boards, at most once per frame
+    private class FrameUpdater extends AnimationTimer {
+
+        private CanvasBoardRenderer[] boards;
+        private Label[] scores;
+        private Label status;
+        private long[] shown;
+        private long[] shownResults;
+        private BitboardPosition scratch;
+        private long frames;
+        private long redrawn;
+        private long secondStartedAt;
+
+        FrameUpdater(CanvasBoardRenderer[] boards, Label[] scores, Label status) {
+            this.boards = boards;
+            this.scores = scores;
+            this.status = status;
+            shown = new long[boards.length];
+            shownResults = new long[2 * boards.length];
+            // forces the first frame to fill in the scores
+            Arrays.fill(shownResults, -1);
+            scratch = new BitboardPosition();
+        }
+
+        @Override
+        public void handle(long now) {
+            for (int i = 0; i < boards.length; i++) {
+                long position = published.get(i);
+                if (position != shown[i]) {
+                    shown[i] = position;
+                    scratch.setMasks((int) (position >>> 32), (int) position);
+                    boards[i].showPosition(scratch);
+                    redrawn++;
+                }
+                long blueWins = results.get(2 * i);
+                long redWins = results.get(2 * i + 1);
+                if (blueWins != shownResults[2 * i] || redWins != shownResults[2 * i + 1]) {
+                    shownResults[2 * i] = blueWins;
+                    shownResults[2 * i + 1] = redWins;
+                    scores[i].setText("BLUE " + blueWins + " : " + redWins + " RED");
+                }
+            }
+            frames++;
+            if (secondStartedAt == 0) {
+                secondStartedAt = now;
+            } else if (now - secondStartedAt >= 1_000_000_000L) {
+                double seconds = (now - secondStartedAt) / 1e9;
+                status.setText(String.format("%d games, %.0f fps, %.0f board updates/s%s",
+                        boards.length, frames / seconds, redrawn / seconds, describeFailures()));
+                frames = 0;
+                redrawn = 0;
+                secondStartedAt = now;
+            }
+        }
+    }
+
+    private String describeFailures() {
+        int stopped = 0;
+        String last = null;
+        for (int i = 0; i < failures.length(); i++) {
+            String failure = failures.get(i);
+            if (failure != null) {
+                stopped++;
+                last = "board " + (i + 1) + ": " + failure;
+            }
+        }
+        return stopped == 0 ? "" : String.format(", %d stopped (%s)", stopped, last);
+    }
+
+    private void startPlayers() {
+        players = Executors.newScheduledThreadPool(GameParams.SEARCH_THREADS, r -> {
+            Thread thread = new Thread(r, "dashboard-player");
+            thread.setDaemon(true);
+            // searching must not starve the FX thread of its frames
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        for (int i = 0; i < boardCount; i++) {
+            players.execute(new BoardPlayer(i));
+        }
+    }
+
+    // plays one board's games a ply per task, tasks of one board never overlap
+    private class BoardPlayer implements Runnable {
+
+        private int board;
+        private GameEngine engine;
+        private AlphaBetaSearcher searcher;
+        private Random random;
+        private int[] moves;
+
+        BoardPlayer(int board) {
+            this.board = board;
+            engine = new GameEngine();
+            searcher = new AlphaBetaSearcher(SEARCH_TABLE_BITS);
+            random = new Random(board);
+            moves = new int[BitboardPosition.MAX_MOVES];
+            engine.newGame(random.nextBoolean() ? Square.BLUE : Square.RED);
+            publish();
+        }
+
+        @Override
+        public void run() {
+            try {
+                if (engine.isGameOver()) {
+                    results.incrementAndGet(2 * board + (engine.getWinner() == Square.BLUE ? 0 : 1));
+                    engine.newGame(random.nextBoolean() ? Square.BLUE : Square.RED);
+                } else {
+                    playPly();
+                }
+                publish();
+                players.schedule(this, engine.isGameOver() ? pauseMillis : 0, TimeUnit.MILLISECONDS);
+            } catch (RuntimeException e) {
+                // a failing board stops, the others keep playing, the status line tells which
+                failures.set(board, e.toString());
+            }
+        }
+
+        private void playPly() {
+            int move;
+            if (engine.getMoveLog().getPly() < RANDOM_OPENING_PLIES) {
+                int count = engine.generateMoves(moves);
+                move = count == 0 ? -1 : moves[random.nextInt(count)];
+            } else {
+                move = searcher.findBestMove(new BitboardPosition(engine.getPosition()), engine.getTurn(), moveMillis);
+            }
+            if (move == -1) {
+                engine.passTurn();
+            } else {
+                engine.applyMove(move);
+            }
+        }
+
+        private void publish() {
+            BitboardPosition position = engine.getPosition();
+            published.set(board, (long) position.getFox() << 32 | (position.getHounds() & 0xFFFFFFFFL));
+        }
+    }
+}
@@ -0,0 +1,125 @@
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+
+// Perfect-play results for every position with one fox and HOUND_COUNT hounds.
+//
+// A position is indexed by the rank of its hound set in the combinatorial number system,
+// the fox square and the side to move, so every position maps to a unique slot without hashing.
+// Each slot holds one byte: 0 for a draw (or an invalid position), d + 1 when the side to move
+// wins in d plies and -(d + 1) when it loses in d plies.
+//
+// The results are read through absolute buffer gets only, so one instance (in memory or mapped
+// from a file by TablebaseFile) can be shared by any number of threads.
+public class Tablebase {
+
+    public static final int HOUND_COUNT = BitboardPosition.HOUND_COUNT;
+    public static final byte DRAW = 0;
+
+    // BINOMIAL[n][k] = n choose k
+    private static final int[][] BINOMIAL = new int[BitboardPosition.SQUARE_COUNT + 1][HOUND_COUNT + 1];
+    public static final int HOUND_SET_COUNT;
+    public static final int POSITION_COUNT;
+
+    static {
+        for (int n = 0; n <= BitboardPosition.SQUARE_COUNT; n++) {
+            BINOMIAL[n][0] = 1;
+            for (int k = 1; k <= HOUND_COUNT && k <= n; k++) {
+                BINOMIAL[n][k] = BINOMIAL[n - 1][k - 1] + BINOMIAL[n - 1][k];
+            }
+        }
+        HOUND_SET_COUNT = BINOMIAL[BitboardPosition.SQUARE_COUNT][HOUND_COUNT];
+        POSITION_COUNT = HOUND_SET_COUNT * BitboardPosition.SQUARE_COUNT * 2;
+    }
+
+    private ByteBuffer values;
+    private LongBuffer reachable;
+
+    public Tablebase(byte[] values, long[] reachable) {
+        this(ByteBuffer.wrap(values), LongBuffer.wrap(reachable));
+    }
+
+    public Tablebase(ByteBuffer values, LongBuffer reachable) {
+        this.values = values;
+        this.reachable = reachable;
+    }
+
+    // rank of a set of exactly HOUND_COUNT squares, 0 .. HOUND_SET_COUNT - 1
+    public static int rankHounds(int hounds) {
+        int rank = 0;
+        for (int k = 1; hounds != 0; k++) {
+            rank += BINOMIAL[Integer.numberOfTrailingZeros(hounds)][k];
+            hounds &= hounds - 1;
+        }
+        return rank;
+    }
+    public static int unrankHounds(int rank) {
+        int hounds = 0;
+        for (int k = HOUND_COUNT; k >= 1; k--) {
+            int square = k - 1;
+            while (square + 1 < BitboardPosition.SQUARE_COUNT && BINOMIAL[square + 1][k] <= rank) {
+                square++;
+            }
+            rank -= BINOMIAL[square][k];
+            hounds |= 1 << square;
+        }
+        return hounds;
+    }
+
+    public static int index(int houndRank, int foxSquare, boolean foxToMove) {
+        return (houndRank * BitboardPosition.SQUARE_COUNT + foxSquare) * 2 + (foxToMove ? 1 : 0);
+    }
+    public static int index(BitboardPosition position, Square turn) {
+        return index(rankHounds(position.getHounds()), position.getFoxSquare(), turn == Square.BLUE);
+    }
+    public static boolean isValid(BitboardPosition position) {
+        return Integer.bitCount(position.getHounds()) == HOUND_COUNT && position.getFox() != 0;
+    }
+
+    public static boolean isWin(byte value) {
+        return value > 0;
+    }
+    public static boolean isLoss(byte value) {
+        return value < 0;
+    }
+    public static int distance(byte value) {
+        return Math.abs(value) - 1;
+    }
+    public static byte win(int distance) {
+        return (byte) (distance + 1);
+    }
+    public static byte loss(int distance) {
+        return (byte) -(distance + 1);
+    }
+
+    // result for the side to move
+    public byte probe(BitboardPosition position, Square turn) {
+        if (!isValid(position)) {
+            return DRAW;
+        }
+        return values.get(index(position, turn));
+    }
+    public byte getValue(int index) {
+        return values.get(index);
+    }
+    public boolean isReachable(int index) {
+        return (reachable.get(index >>> 6) & (1L << index)) != 0;
+    }
+    public ByteBuffer getValues() {
+        return values.duplicate();
+    }
+    public LongBuffer getReachable() {
+        return reachable.duplicate();
+    }
+
+    // short description for the side to move, e.g. "wins in 12"
+    public String describe(BitboardPosition position, Square turn) {
+        byte value = probe(position, turn);
+        if (isWin(value)) {
+            return "wins in " + distance(value);
+        }
+        if (isLoss(value)) {
+            return "loses in " + distance(value);
+        }
+        return "draw";
+    }
+}
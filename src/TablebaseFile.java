@@ -0,0 +1,146 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+// On-disk tablebase, read through a read-only memory mapping so the results stay in the
+// page cache and are shared by every session and every JVM on the machine instead of
+// being copied onto the heap.
+//
+// layout (big-endian):
+//   0  int   magic "FHTB"
+//   4  int   format version
+//   8  int   dark squares on the board
+//   12 int   hound count
+//   16 int   position count N
+//   20 int   reserved, 0
+//   24 long  CRC32 of everything after the header
+//   32 byte[N] results, indexed as in Tablebase
+//   32 + N   long[(N + 63) / 64] reachability bitset
+//
+// usage: java TablebaseFile generate <file> [threads]
+//        java TablebaseFile verify <file>
+public class TablebaseFile {
+
+    public static final int MAGIC = 0x46485442;
+    public static final int VERSION = 1;
+    public static final int HEADER_SIZE = 32;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("usage: java TablebaseFile generate|verify <file> [threads]");
+            System.exit(1);
+        }
+        Path path = Paths.get(args[1]);
+        if (args[0].equals("generate")) {
+            int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+            long start = System.nanoTime();
+            write(new RetrogradeSolver(threads).solve(), path);
+            System.out.println("wrote " + path + " (" + Files.size(path) + " bytes) in "
+                    + (System.nanoTime() - start) / 1_000_000 + " ms");
+        } else {
+            long start = System.nanoTime();
+            open(path);
+            System.out.println(path + " is valid, checked in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+        }
+    }
+
+    // maps the file, solving the game and writing the file first when it is missing or unusable, so
+    // only the first JVM pays for the solve and the heap copy is dropped once it is on disk
+    public static Tablebase openOrGenerate(Path path, int threads) throws IOException {
+        if (Files.exists(path)) {
+            try {
+                return open(path);
+            } catch (IOException e) {
+                System.err.println("Regenerating " + path + ": " + e.getMessage());
+            }
+        }
+        write(new RetrogradeSolver(threads).solve(), path);
+        return open(path, false);
+    }
+
+    // written next to the target and moved over it, so a JVM starting meanwhile never maps half a file
+    public static void write(Tablebase tablebase, Path path) throws IOException {
+        ByteBuffer values = tablebase.getValues();
+        LongBuffer reachable = tablebase.getReachable();
+        ByteBuffer body = ByteBuffer.allocate(values.remaining() + reachable.remaining() * Long.BYTES);
+        body.put(values);
+        body.asLongBuffer().put(reachable);
+        body.rewind();
+        CRC32 crc = new CRC32();
+        crc.update(body.duplicate());
+
+        Path directory = path.toAbsolutePath().getParent();
+        Path temp = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+        try (OutputStream os = Files.newOutputStream(temp);
+             DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(os))) {
+            dos.writeInt(MAGIC);
+            dos.writeInt(VERSION);
+            dos.writeInt(BitboardPosition.SQUARE_COUNT);
+            dos.writeInt(Tablebase.HOUND_COUNT);
+            dos.writeInt(Tablebase.POSITION_COUNT);
+            dos.writeInt(0);
+            dos.writeLong(crc.getValue());
+            dos.write(body.array());
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public static Tablebase open(Path path) throws IOException {
+        return open(path, true);
+    }
+
+    // the checksum pass touches every page once, skip it when the file was verified before
+    public static Tablebase open(Path path, boolean verifyChecksum) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE) {
+                throw new IOException("Not a tablebase file: " + path);
+            }
+            // the mapping stays valid after the channel is closed
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        if (buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a tablebase file: " + path);
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("Unsupported tablebase version " + buffer.getInt(4) + ": " + path);
+        }
+        int positionCount = buffer.getInt(16);
+        if (buffer.getInt(8) != BitboardPosition.SQUARE_COUNT
+                || buffer.getInt(12) != Tablebase.HOUND_COUNT
+                || positionCount != Tablebase.POSITION_COUNT) {
+            throw new IOException("Tablebase was generated for a different board: " + path);
+        }
+        int reachableLongs = (positionCount + 63) / 64;
+        long expectedSize = HEADER_SIZE + positionCount + (long) reachableLongs * Long.BYTES;
+        if (buffer.capacity() != expectedSize) {
+            throw new IOException("Tablebase file is truncated: " + path);
+        }
+        if (verifyChecksum) {
+            CRC32 crc = new CRC32();
+            crc.update(buffer.slice(HEADER_SIZE, buffer.capacity() - HEADER_SIZE));
+            if (crc.getValue() != buffer.getLong(24)) {
+                throw new IOException("Tablebase checksum mismatch: " + path);
+            }
+        }
+
+        ByteBuffer values = buffer.slice(HEADER_SIZE, positionCount);
+        LongBuffer reachable = buffer.slice(HEADER_SIZE + positionCount, reachableLongs * Long.BYTES).asLongBuffer();
+        return new Tablebase(values, reachable);
+    }
+}
@@ -0,0 +1,173 @@
+// Hierarchical timing wheel for large numbers of timers that are mostly cancelled or re-armed
+// before they fire, like per-turn clocks.
+//
+// Four levels of 64 slots; level 0 holds timers due within 64 ticks, level n those due within
+// 64^(n+1) ticks, and a level's slot is cascaded into the levels below when time reaches it.
+// Timers are intrusive doubly linked list nodes, so scheduling and cancelling are O(1) and
+// allocation-free. Occupancy bitmasks let advance() jump over empty slots, and tell the caller how
+// long it may sleep. Not thread-safe: all calls come from the owning thread, actions run on it too.
+public class TimingWheel {
+
+    private static final int SLOT_BITS = 6;
+    private static final int SLOT_COUNT = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOT_COUNT - 1;
+    private static final int LEVEL_COUNT = 4;
+    private static final long MAX_DELAY_TICKS = (1L << (SLOT_BITS * LEVEL_COUNT)) - 1;
+
+    public static class Timer {
+
+        private Runnable action;
+        private Timer previous;
+        private Timer next;
+        private long deadlineTick;
+        private int level;
+        private int slot;
+        private boolean armed;
+
+        public Timer(Runnable action) {
+            this.action = action;
+        }
+
+        public boolean isArmed() {
+            return armed;
+        }
+    }
+
+    private long tickNanos;
+    private long startNanos;
+    // last tick whose timers have been run
+    private long currentTick;
+    // per level and slot the first timer of the slot's list, null when empty
+    private Timer[][] slots;
+    // per level a bit for every non-empty slot
+    private long[] occupied;
+    private int armedCount;
+
+    public TimingWheel(long tickNanos, long startNanos) {
+        this.tickNanos = tickNanos;
+        this.startNanos = startNanos;
+        slots = new Timer[LEVEL_COUNT][SLOT_COUNT];
+        occupied = new long[LEVEL_COUNT];
+    }
+
+    public int getArmedCount() {
+        return armedCount;
+    }
+
+    // (re-)arms the timer to fire at the System.nanoTime() deadline, never early but up to a tick late;
+    // an armed timer is moved
+    public void schedule(Timer timer, long deadlineNanos) {
+        if (timer.armed) {
+            unlink(timer);
+        } else {
+            timer.armed = true;
+            armedCount++;
+        }
+        long deadlineTick = Math.floorDiv(deadlineNanos - startNanos + tickNanos - 1, tickNanos);
+        timer.deadlineTick = Math.max(currentTick + 1, Math.min(deadlineTick, currentTick + MAX_DELAY_TICKS));
+        link(timer);
+    }
+
+    public void cancel(Timer timer) {
+        if (timer.armed) {
+            unlink(timer);
+            timer.armed = false;
+            armedCount--;
+        }
+    }
+
+    // runs every timer that is due at the given System.nanoTime() value
+    public void advance(long nowNanos) {
+        long targetTick = (nowNanos - startNanos) / tickNanos;
+        while (currentTick < targetTick) {
+            currentTick += Math.min(ticksUntilNextEvent(), targetTick - currentTick);
+            runTick();
+        }
+    }
+
+    // how long the owner may sleep before advance() has work, -1 when no timer is armed
+    public long getNanosUntilNextEvent(long nowNanos) {
+        if (armedCount == 0) {
+            return -1;
+        }
+        long eventTick = currentTick + ticksUntilNextEvent();
+        return Math.max(0, startNanos + eventTick * tickNanos - nowNanos);
+    }
+
+    // distance to the next tick that either has level 0 timers or cascades a higher level
+    private long ticksUntilNextEvent() {
+        int index = (int) (currentTick & SLOT_MASK);
+        int untilWrap = SLOT_COUNT - index;
+        // slots after the current one, up to and including the wrap-around slot 0 which cascades
+        long ahead = index == SLOT_MASK ? 0 : occupied[0] >>> (index + 1);
+        return ahead == 0 ? untilWrap : Long.numberOfTrailingZeros(ahead) + 1;
+    }
+
+    private void runTick() {
+        int index = (int) (currentTick & SLOT_MASK);
+        if (index == 0) {
+            cascade(1);
+        }
+        // actions may cancel or re-arm timers, but nothing new can land in this slot before the next wrap
+        Timer timer;
+        while ((timer = slots[0][index]) != null) {
+            unlink(timer);
+            timer.armed = false;
+            armedCount--;
+            timer.action.run();
+        }
+    }
+
+    // moves the level's current slot down, after cascading the level above when it wrapped too
+    private void cascade(int level) {
+        if (level >= LEVEL_COUNT) {
+            return;
+        }
+        int index = (int) ((currentTick >>> (SLOT_BITS * level)) & SLOT_MASK);
+        if (index == 0) {
+            cascade(level + 1);
+        }
+        Timer timer = slots[level][index];
+        slots[level][index] = null;
+        occupied[level] &= ~(1L << index);
+        while (timer != null) {
+            Timer next = timer.next;
+            link(timer);
+            timer = next;
+        }
+    }
+
+    private void link(Timer timer) {
+        long delta = timer.deadlineTick - currentTick;
+        int level = 0;
+        while (level < LEVEL_COUNT - 1 && delta >= 1L << (SLOT_BITS * (level + 1))) {
+            level++;
+        }
+        int slot = (int) ((timer.deadlineTick >>> (SLOT_BITS * level)) & SLOT_MASK);
+        timer.level = level;
+        timer.slot = slot;
+        timer.previous = null;
+        timer.next = slots[level][slot];
+        if (timer.next != null) {
+            timer.next.previous = timer;
+        }
+        slots[level][slot] = timer;
+        occupied[level] |= 1L << slot;
+    }
+
+    private void unlink(Timer timer) {
+        if (timer.previous != null) {
+            timer.previous.next = timer.next;
+        } else {
+            slots[timer.level][timer.slot] = timer.next;
+            if (timer.next == null) {
+                occupied[timer.level] &= ~(1L << timer.slot);
+            }
+        }
+        if (timer.next != null) {
+            timer.next.previous = timer.previous;
+        }
+        timer.previous = null;
+        timer.next = null;
+    }
+}
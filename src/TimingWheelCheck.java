@@ -0,0 +1,142 @@
+import java.util.Random;
+
+// Drives a TimingWheel with seeded random schedules, re-arms and cancels on a simulated clock and
+// checks it against the plain deadlines it was given.
+//
+// After every advance() each timer that fired must not have been early, every armed timer whose
+// deadline is more than a tick past must have fired, the armed count must match, and
+// getNanosUntilNextEvent() must not promise a sleep past the earliest deadline. Delays reach every
+// level of the wheel, time moves in steps from a fraction of a tick to whole upper-level slots, and
+// fired actions re-arm themselves or cancel other timers like the server's turn clocks do.
+//
+// usage: java TimingWheelCheck [timers] [steps] [seed]
+public class TimingWheelCheck {
+
+    private static final long TICK_NANOS = 1_000_000L;
+    // three levels of delays and a few deeper ones, the top level's range is clamped by the wheel
+    private static final int MAX_DELAY_TICKS = 1 << 20;
+
+    private static long now;
+    private static long[] deadlines;
+    private static boolean[] armed;
+    private static TimingWheel.Timer[] timers;
+    private static TimingWheel wheel;
+    private static Random random;
+    private static int fired;
+    private static int failures;
+
+    public static void main(String[] args) {
+        int timerCount = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        int steps = args.length > 1 ? Integer.parseInt(args[1]) : 2_000;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 1;
+        random = new Random(seed);
+        now = random.nextLong() / 2;
+        wheel = new TimingWheel(TICK_NANOS, now);
+        deadlines = new long[timerCount];
+        armed = new boolean[timerCount];
+        timers = new TimingWheel.Timer[timerCount];
+        for (int i = 0; i < timerCount; i++) {
+            int index = i;
+            timers[i] = new TimingWheel.Timer(() -> fire(index));
+            schedule(i);
+        }
+
+        for (int step = 0; step < steps && failures < 10; step++) {
+            // some traffic between two advances, like moves arriving between selects
+            for (int i = random.nextInt(50); i > 0; i--) {
+                int index = random.nextInt(timerCount);
+                if (random.nextInt(4) == 0) {
+                    wheel.cancel(timers[index]);
+                    armed[index] = false;
+                } else {
+                    schedule(index);
+                }
+            }
+            checkSleep();
+            now += nextStep();
+            wheel.advance(now);
+            checkState(step);
+        }
+        System.out.println(timerCount + " timers, " + steps + " steps, " + fired + " fired, " + failures + " failures");
+        if (failures > 0) {
+            System.exit(1);
+        }
+    }
+
+    private static void schedule(int index) {
+        long delay = random.nextInt(4) == 0 ? random.nextInt(64) * TICK_NANOS
+                : (long) (random.nextDouble() * MAX_DELAY_TICKS * TICK_NANOS);
+        deadlines[index] = now + delay;
+        armed[index] = true;
+        wheel.schedule(timers[index], deadlines[index]);
+    }
+
+    private static void fire(int index) {
+        fired++;
+        if (!armed[index]) {
+            fail("timer " + index + " fired while cancelled");
+        } else if (deadlines[index] > now) {
+            fail("timer " + index + " fired " + (deadlines[index] - now) + " ns early");
+        }
+        armed[index] = false;
+        int choice = random.nextInt(10);
+        if (choice < 3) {
+            schedule(index);
+        } else if (choice == 3) {
+            int other = random.nextInt(timers.length);
+            wheel.cancel(timers[other]);
+            armed[other] = false;
+        }
+    }
+
+    // mostly sub-tick and few-tick steps, now and then far enough to cascade the upper levels
+    private static long nextStep() {
+        switch (random.nextInt(8)) {
+            case 0:
+                return random.nextInt((int) TICK_NANOS);
+            case 1:
+                return (long) random.nextInt(64 * 64) * TICK_NANOS + random.nextInt((int) TICK_NANOS);
+            case 2:
+                return (long) random.nextInt(64 * 64 * 64) * TICK_NANOS;
+            default:
+                return (long) random.nextInt(64) * TICK_NANOS + random.nextInt((int) TICK_NANOS);
+        }
+    }
+
+    private static void checkState(int step) {
+        int armedCount = 0;
+        for (int i = 0; i < timers.length; i++) {
+            if (armed[i] != timers[i].isArmed()) {
+                fail("step " + step + ": timer " + i + " armed " + timers[i].isArmed() + ", expected " + armed[i]);
+            }
+            if (armed[i]) {
+                armedCount++;
+                if (deadlines[i] + TICK_NANOS <= now) {
+                    fail("step " + step + ": timer " + i + " is " + (now - deadlines[i]) + " ns late");
+                }
+            }
+        }
+        if (armedCount != wheel.getArmedCount()) {
+            fail("step " + step + ": armed count " + wheel.getArmedCount() + ", expected " + armedCount);
+        }
+    }
+
+    // sleeping for the promised time must not skip the tick of the earliest deadline
+    private static void checkSleep() {
+        long earliest = Long.MAX_VALUE;
+        for (int i = 0; i < timers.length; i++) {
+            if (armed[i]) {
+                earliest = Math.min(earliest, deadlines[i]);
+            }
+        }
+        long wait = wheel.getNanosUntilNextEvent(now);
+        if (earliest == Long.MAX_VALUE ? wait != -1 : wait < 0 || now + wait > earliest + TICK_NANOS) {
+            fail("sleep of " + wait + " ns passes the earliest deadline, " + (earliest - now) + " ns away");
+        }
+    }
+
+    private static void fail(String problem) {
+        failures++;
+        System.out.println(problem);
+    }
+}
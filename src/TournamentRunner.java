@@ -0,0 +1,439 @@
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Plays engine-vs-engine games without any UI and reports how the settings compare.
+//
+// Every pair of players meets in --games games per pairing, alternating who plays the fox and who
+// moves first. The first --opening plies are random (seeded per game) so fixed-depth players don't
+// repeat one game. Games run in parallel on a ForkJoinPool, each worker thread reuses one searcher
+// per player. Results go to a CSV line per game and a JSON summary with Elo estimates.
+//
+// --board plays on a BoardVariant (e.g. 10x10 or 12x12:8) with VariantGame instead of the 8x8 engine.
+// --archive appends every 8x8 game with its moves to a GameArchive.
+//
+// player specs: depth:N (fixed depth), time:N (N ms per move), random
+// usage: java TournamentRunner [--games N] [--threads N] [--opening N] [--seed N] [--board spec] [--archive file] [--out prefix] player...
+public class TournamentRunner {
+
+    // games that run this long are counted as draws
+    private static final int MAX_PLIES = 400;
+    private static final int TABLE_BITS = 16;
+    private static final int ELO_ITERATIONS = 200;
+
+    private static class Player {
+
+        private String name;
+        private int depth;
+        private long timeMillis;
+        private ThreadLocal<AlphaBetaSearcher> searchers;
+
+        Player(String spec) {
+            name = spec;
+            String[] parts = spec.split(":");
+            if (parts[0].equals("depth") && parts.length == 2) {
+                depth = Integer.parseInt(parts[1]);
+            } else if (parts[0].equals("time") && parts.length == 2) {
+                timeMillis = Long.parseLong(parts[1]);
+            } else if (!spec.equals("random")) {
+                throw new IllegalArgumentException("Unknown player " + spec);
+            }
+            searchers = ThreadLocal.withInitial(() -> new AlphaBetaSearcher(TABLE_BITS));
+        }
+
+        boolean isRandom() {
+            return depth == 0 && timeMillis == 0;
+        }
+    }
+
+    private static class GameResult {
+        private int foxPlayer;
+        private int houndPlayer;
+        private Square firstTurn;
+        private Square winner;
+        private int plies;
+        // per side, index 0 fox, 1 hounds
+        private long[] nodes = new long[2];
+        private long[] searchNanos = new long[2];
+        // 8x8 games only
+        private MoveLog log;
+    }
+
+    private List<Player> players;
+    private int gamesPerPairing;
+    private int threads;
+    private int openingPlies;
+    private long seed;
+    // null for the classic 8x8 engine
+    private BoardVariant board;
+
+    public TournamentRunner(List<Player> players, int gamesPerPairing, int threads, int openingPlies, long seed, BoardVariant board) {
+        this.players = players;
+        this.gamesPerPairing = gamesPerPairing;
+        this.threads = threads;
+        this.openingPlies = openingPlies;
+        this.seed = seed;
+        this.board = board;
+    }
+
+    public static void main(String[] args) throws IOException {
+        int games = 100;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int opening = 4;
+        long seed = 1;
+        String out = "tournament";
+        BoardVariant board = null;
+        Path archive = null;
+        List<Player> players = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--games":
+                    games = Integer.parseInt(args[++i]);
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                case "--opening":
+                    opening = Integer.parseInt(args[++i]);
+                    break;
+                case "--seed":
+                    seed = Long.parseLong(args[++i]);
+                    break;
+                case "--board":
+                    board = BoardVariant.parse(args[++i]);
+                    break;
+                case "--archive":
+                    archive = Paths.get(args[++i]);
+                    break;
+                case "--out":
+                    out = args[++i];
+                    break;
+                default:
+                    players.add(new Player(args[i]));
+            }
+        }
+        if (players.size() < 2) {
+            players.clear();
+            players.add(new Player("depth:2"));
+            players.add(new Player("depth:4"));
+            players.add(new Player("depth:6"));
+        }
+
+        if (archive != null && board != null) {
+            throw new IllegalArgumentException("Archives hold 8x8 games only");
+        }
+        TournamentRunner runner = new TournamentRunner(players, games, threads, opening, seed, board);
+        long start = System.nanoTime();
+        GameResult[] results = runner.run();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.println(String.format(Locale.ROOT, "%d games in %.1f s on %d threads", results.length, seconds, threads));
+
+        runner.writeCsv(results, Paths.get(out + ".csv"));
+        runner.writeJson(results, Paths.get(out + ".json"));
+        runner.printSummary(results);
+        if (archive != null) {
+            runner.writeArchive(results, archive);
+        }
+    }
+
+    public GameResult[] run() {
+        int total = players.size() * (players.size() - 1) / 2 * gamesPerPairing;
+        AtomicInteger finished = new AtomicInteger();
+        List<Callable<GameResult>> tasks = new ArrayList<>(total);
+        for (int a = 0; a < players.size(); a++) {
+            for (int b = a + 1; b < players.size(); b++) {
+                for (int game = 0; game < gamesPerPairing; game++) {
+                    // a plays the fox in even games, the first mover flips every two games
+                    int foxPlayer = game % 2 == 0 ? a : b;
+                    int houndPlayer = game % 2 == 0 ? b : a;
+                    Square firstTurn = game / 2 % 2 == 0 ? Square.BLUE : Square.RED;
+                    long gameSeed = seed * 1_000_003L + tasks.size();
+                    tasks.add(() -> {
+                        GameResult result = playGame(foxPlayer, houndPlayer, firstTurn, gameSeed);
+                        int done = finished.incrementAndGet();
+                        if (done % Math.max(total / 10, 1) == 0) {
+                            System.out.println(done + "/" + total + " games");
+                        }
+                        return result;
+                    });
+                }
+            }
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            GameResult[] results = new GameResult[total];
+            List<Future<GameResult>> futures = pool.invokeAll(tasks);
+            for (int i = 0; i < total; i++) {
+                results[i] = futures.get(i).get();
+            }
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Tournament interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Game failed", e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private GameResult playGame(int foxPlayer, int houndPlayer, Square firstTurn, long gameSeed) {
+        GameResult result = new GameResult();
+        result.foxPlayer = foxPlayer;
+        result.houndPlayer = houndPlayer;
+        result.firstTurn = firstTurn;
+        Random random = new Random(gameSeed);
+        Player[] sides = {players.get(foxPlayer), players.get(houndPlayer)};
+        if (board != null) {
+            playVariantGame(result, sides, random);
+            return result;
+        }
+        // tables are cleared so a game's moves don't depend on which games the thread played before
+        for (Player player : sides) {
+            player.searchers.get().clearTable();
+        }
+
+        GameEngine engine = new GameEngine();
+        engine.newGame(firstTurn);
+        int[] moves = new int[BitboardPosition.MAX_MOVES];
+        while (!engine.isGameOver() && result.plies < MAX_PLIES) {
+            int side = engine.getTurn() == Square.BLUE ? 0 : 1;
+            Player player = sides[side];
+            int move;
+            if (result.plies < openingPlies || player.isRandom()) {
+                int count = engine.generateMoves(moves);
+                move = count == 0 ? -1 : moves[random.nextInt(count)];
+            } else {
+                AlphaBetaSearcher searcher = player.searchers.get();
+                BitboardPosition position = new BitboardPosition(engine.getPosition());
+                long start = System.nanoTime();
+                move = player.depth > 0
+                        ? searcher.findBestMove(position, engine.getTurn(), Long.MAX_VALUE, 1, player.depth)
+                        : searcher.findBestMove(position, engine.getTurn(), player.timeMillis);
+                result.searchNanos[side] += System.nanoTime() - start;
+                result.nodes[side] += searcher.getNodes();
+            }
+            if (move == -1) {
+                engine.passTurn();
+            } else {
+                engine.applyMove(move);
+            }
+            result.plies++;
+        }
+        result.winner = engine.getWinner();
+        result.log = engine.getMoveLog();
+        return result;
+    }
+
+    private void playVariantGame(GameResult result, Player[] sides, Random random) {
+        for (Player player : sides) {
+            player.searchers.get().clearTable();
+        }
+        VariantGame game = new VariantGame(board);
+        game.newGame(result.firstTurn);
+        int[] moves = new int[board.getMaxMoves()];
+        while (!game.isGameOver() && result.plies < MAX_PLIES) {
+            int side = game.getTurn() == Square.BLUE ? 0 : 1;
+            Player player = sides[side];
+            int move;
+            if (result.plies < openingPlies || player.isRandom()) {
+                int count = game.generateMoves(moves);
+                move = count == 0 ? -1 : moves[random.nextInt(count)];
+            } else {
+                AlphaBetaSearcher searcher = player.searchers.get();
+                long start = System.nanoTime();
+                move = player.depth > 0
+                        ? searcher.findBestMove(game.getPosition(), game.getTurn(), Long.MAX_VALUE, 1, player.depth)
+                        : searcher.findBestMove(game.getPosition(), game.getTurn(), player.timeMillis);
+                result.searchNanos[side] += System.nanoTime() - start;
+                result.nodes[side] += searcher.getNodes();
+            }
+            if (move == -1) {
+                game.passTurn();
+            } else {
+                game.applyMove(move);
+            }
+            result.plies++;
+        }
+        result.winner = game.getWinner();
+    }
+
+    // points scored by every player, a win is 1 and a draw 1/2
+    private double[] scores(GameResult[] results) {
+        double[] scores = new double[players.size()];
+        for (GameResult result : results) {
+            if (result.winner == null) {
+                scores[result.foxPlayer] += 0.5;
+                scores[result.houndPlayer] += 0.5;
+            } else {
+                scores[result.winner == Square.BLUE ? result.foxPlayer : result.houndPlayer] += 1;
+            }
+        }
+        return scores;
+    }
+
+    // maximum likelihood ratings (Newton steps on the logistic Elo model); every player also gets one
+    // virtual draw against a 1500 player, which anchors the scale and keeps perfect scores finite
+    private double[] eloRatings(GameResult[] results) {
+        int n = players.size();
+        double[] scores = scores(results);
+        int[][] games = new int[n][n];
+        for (GameResult result : results) {
+            games[result.foxPlayer][result.houndPlayer]++;
+            games[result.houndPlayer][result.foxPlayer]++;
+        }
+        double[] ratings = new double[n];
+        double scale = Math.log(10) / 400;
+        for (int iteration = 0; iteration < ELO_ITERATIONS; iteration++) {
+            for (int p = 0; p < n; p++) {
+                double expected = expectedScore(ratings[p], 0);
+                double variance = expected * (1 - expected);
+                for (int q = 0; q < n; q++) {
+                    if (games[p][q] > 0) {
+                        double e = expectedScore(ratings[p], ratings[q]);
+                        expected += games[p][q] * e;
+                        variance += games[p][q] * e * (1 - e);
+                    }
+                }
+                double step = (scores[p] + 0.5 - expected) / (variance * scale);
+                ratings[p] += Math.max(-200, Math.min(200, step));
+            }
+        }
+        for (int p = 0; p < n; p++) {
+            ratings[p] += 1500;
+        }
+        return ratings;
+    }
+
+    private static double expectedScore(double rating, double opponent) {
+        return 1 / (1 + Math.pow(10, (opponent - rating) / 400));
+    }
+
+    private void writeCsv(GameResult[] results, Path path) throws IOException {
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(path))) {
+            out.println("game,fox,hounds,first,winner,plies,fox_nodes,hound_nodes,fox_search_ms,hound_search_ms");
+            for (int i = 0; i < results.length; i++) {
+                GameResult r = results[i];
+                out.println(String.format(Locale.ROOT, "%d,%s,%s,%s,%s,%d,%d,%d,%.3f,%.3f", i,
+                        players.get(r.foxPlayer).name, players.get(r.houndPlayer).name, r.firstTurn,
+                        r.winner == null ? "DRAW" : r.winner, r.plies, r.nodes[0], r.nodes[1],
+                        r.searchNanos[0] / 1e6, r.searchNanos[1] / 1e6));
+            }
+        }
+    }
+
+    private void writeArchive(GameResult[] results, Path path) throws IOException {
+        try (GameArchive archive = GameArchive.open(path)) {
+            for (int i = 0; i < results.length; i++) {
+                GameResult r = results[i];
+                Map<String, String> tags = new LinkedHashMap<>();
+                tags.put("game", Integer.toString(i));
+                tags.put("seed", Long.toString(seed));
+                tags.put("fox", players.get(r.foxPlayer).name);
+                tags.put("hounds", players.get(r.houndPlayer).name);
+                archive.append(new GameArchive.ArchivedGame(tags, r.log, r.winner != null || r.plies >= MAX_PLIES, r.winner));
+            }
+            System.out.println(results.length + " games appended to " + path + " (" + archive.size() + " in total)");
+        }
+    }
+
+    private void writeJson(GameResult[] results, Path path) throws IOException {
+        double[] ratings = eloRatings(results);
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(path))) {
+            out.println("{");
+            out.println("  \"games\": " + results.length + ",");
+            out.println("  \"gamesPerPairing\": " + gamesPerPairing + ",");
+            out.println("  \"openingPlies\": " + openingPlies + ",");
+            out.println("  \"seed\": " + seed + ",");
+            out.println("  \"board\": \"" + (board == null ? BoardVariant.CLASSIC : board) + "\",");
+            out.println("  \"players\": [");
+            for (int p = 0; p < players.size(); p++) {
+                PlayerStats stats = new PlayerStats(results, p);
+                out.print(String.format(Locale.ROOT,
+                        "    {\"name\": \"%s\", \"games\": %d, \"wins\": %d, \"losses\": %d, \"draws\": %d,"
+                                + " \"foxWins\": %d, \"houndWins\": %d, \"winRate\": %.4f, \"elo\": %.1f,"
+                                + " \"averagePlies\": %.2f, \"nodesPerSecond\": %.0f}",
+                        players.get(p).name, stats.games, stats.wins, stats.losses, stats.draws,
+                        stats.foxWins, stats.houndWins, stats.winRate(), ratings[p],
+                        stats.averagePlies(), stats.nodesPerSecond()));
+                out.println(p + 1 < players.size() ? "," : "");
+            }
+            out.println("  ]");
+            out.println("}");
+        }
+    }
+
+    private void printSummary(GameResult[] results) {
+        double[] ratings = eloRatings(results);
+        System.out.println("player\tgames\twins\tlosses\tdraws\twin%\telo\tavg plies\tnodes/s");
+        for (int p = 0; p < players.size(); p++) {
+            PlayerStats stats = new PlayerStats(results, p);
+            System.out.println(String.format(Locale.ROOT, "%s\t%d\t%d\t%d\t%d\t%.1f\t%.0f\t%.1f\t%.0f",
+                    players.get(p).name, stats.games, stats.wins, stats.losses, stats.draws,
+                    100 * stats.winRate(), ratings[p], stats.averagePlies(), stats.nodesPerSecond()));
+        }
+    }
+
+    private static class PlayerStats {
+
+        private int games;
+        private int wins;
+        private int losses;
+        private int draws;
+        private int foxWins;
+        private int houndWins;
+        private long plies;
+        private long nodes;
+        private long searchNanos;
+
+        PlayerStats(GameResult[] results, int player) {
+            for (GameResult r : results) {
+                int side = r.foxPlayer == player ? 0 : r.houndPlayer == player ? 1 : -1;
+                if (side == -1) {
+                    continue;
+                }
+                games++;
+                plies += r.plies;
+                nodes += r.nodes[side];
+                searchNanos += r.searchNanos[side];
+                Square own = side == 0 ? Square.BLUE : Square.RED;
+                if (r.winner == null) {
+                    draws++;
+                } else if (r.winner == own) {
+                    wins++;
+                    if (side == 0) {
+                        foxWins++;
+                    } else {
+                        houndWins++;
+                    }
+                } else {
+                    losses++;
+                }
+            }
+        }
+
+        double winRate() {
+            return games == 0 ? 0 : (double) wins / games;
+        }
+        double averagePlies() {
+            return games == 0 ? 0 : (double) plies / games;
+        }
+        double nodesPerSecond() {
+            return searchNanos == 0 ? 0 : nodes / (searchNanos / 1e9);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+public class TranspositionTable {
+
+    public static final int EXACT = 0;
+    public static final int LOWER_BOUND = 1;
+    public static final int UPPER_BOUND = 2;
+
+    // entry layout: move in bits 0-15, score in bits 16-31, depth in bits 32-39, flag + 1 in bits 40-41,
+    // the flag offset keeps every stored entry non-zero so 0 can mean "not found"
+    //
+    // the table is shared by search threads without locking: each slot stores key ^ entry next to the entry,
+    // so a slot torn by two threads writing at once fails the key check and is simply read as a miss
+    private long[] keys;
+    private long[] entries;
+    private int mask;
+
+    public TranspositionTable(int sizeBits) {
+        keys = new long[1 << sizeBits];
+        entries = new long[1 << sizeBits];
+        mask = (1 << sizeBits) - 1;
+    }
+
+    public void clear() {
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = 0;
+            entries[i] = 0;
+        }
+    }
+
+    public void store(long key, int move, int score, int depth, int flag) {
+        int index = (int) key & mask;
+        long entry = (move & 0xFFFFL)
+                | (score & 0xFFFFL) << 16
+                | (long) depth << 32
+                | (long) (flag + 1) << 40;
+        entries[index] = entry;
+        keys[index] = key ^ entry;
+    }
+
+    public long probe(long key) {
+        int index = (int) key & mask;
+        long entry = entries[index];
+        return (keys[index] ^ entry) == key ? entry : 0;
+    }
+
+    public static int entryMove(long entry) {
+        int move = (int) (entry & 0xFFFF);
+        return move == 0xFFFF ? -1 : move;
+    }
+    public static int entryScore(long entry) {
+        return (short) (entry >>> 16);
+    }
+    public static int entryDepth(long entry) {
+        return (int) (entry >>> 32) & 0xFF;
+    }
+    public static int entryFlag(long entry) {
+        return (int) (entry >>> 40) - 1;
+    }
+}
@@ -0,0 +1,144 @@
+import java.util.function.LongSupplier;
+
+// Chess-style clock for the two sides, kept as monotonic deadlines instead of ticks.
+//
+// Each side has a time bank. In per-turn mode the bank of the side to move is refilled at the
+// start of every turn (the classic "N seconds per move" rule). Otherwise banks carry over and
+// the side that finishes a turn gets the increment added. Nothing runs in the background:
+// callers ask how long until the displayed whole second changes and sleep until then.
+public class TurnClock {
+
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    private LongSupplier nanoTime;
+    private long initialBankNanos;
+    private long incrementNanos;
+    private boolean perTurn;
+    private long blueRemaining;
+    private long redRemaining;
+    private Square active;
+    private boolean running;
+    private long turnStartedAt;
+
+    // every turn gets the same fixed time
+    public static TurnClock perTurn(long turnMillis) {
+        return new TurnClock(turnMillis, 0, true, System::nanoTime);
+    }
+
+    // each side starts with a bank that grows by the increment after every own move
+    public static TurnClock withBank(long bankMillis, long incrementMillis) {
+        return new TurnClock(bankMillis, incrementMillis, false, System::nanoTime);
+    }
+
+    public TurnClock(long initialBankMillis, long incrementMillis, boolean perTurn, LongSupplier nanoTime) {
+        this.initialBankNanos = initialBankMillis * 1_000_000L;
+        this.incrementNanos = incrementMillis * 1_000_000L;
+        this.perTurn = perTurn;
+        this.nanoTime = nanoTime;
+        reset(Square.BLUE);
+    }
+
+    // stops the clock and refills both banks
+    public void reset(Square side) {
+        blueRemaining = initialBankNanos;
+        redRemaining = initialBankNanos;
+        active = side;
+        running = false;
+    }
+
+    // changes the per-turn time, used from the next turn on
+    public void setTurnMillis(long turnMillis) {
+        initialBankNanos = turnMillis * 1_000_000L;
+    }
+
+    // ends the running turn (charging its time and adding the increment) and starts one for side
+    public void startTurn(Square side) {
+        long now = nanoTime.getAsLong();
+        if (running) {
+            chargeActive(now);
+            setRemaining(active, getRemainingNanosAt(active, now) + incrementNanos);
+        }
+        active = side;
+        if (perTurn) {
+            setRemaining(side, initialBankNanos);
+        }
+        turnStartedAt = now;
+    }
+
+    // used when a saved clock state is restored
+    public void setRemainingMillis(Square side, long millis) {
+        if (running && side == active) {
+            turnStartedAt = nanoTime.getAsLong();
+        }
+        setRemaining(side, millis * 1_000_000L);
+    }
+
+    public void pause() {
+        if (running) {
+            chargeActive(nanoTime.getAsLong());
+            running = false;
+        }
+    }
+
+    public void resume() {
+        if (!running) {
+            turnStartedAt = nanoTime.getAsLong();
+            running = true;
+        }
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+    public Square getActive() {
+        return active;
+    }
+
+    public long getRemainingNanos(Square side) {
+        long remaining = side == Square.BLUE ? blueRemaining : redRemaining;
+        if (running && side == active) {
+            remaining -= nanoTime.getAsLong() - turnStartedAt;
+        }
+        return Math.max(remaining, 0);
+    }
+    public long getRemainingMillis(Square side) {
+        return getRemainingNanos(side) / 1_000_000L;
+    }
+    public boolean isExpired() {
+        return getRemainingNanos(active) == 0;
+    }
+
+    // whole seconds shown for the side to move, rounded up so "0" only appears once time is out
+    public int getDisplayedSeconds() {
+        return (int) ((getRemainingNanos(active) + NANOS_PER_SECOND - 1) / NANOS_PER_SECOND);
+    }
+
+    // time until the displayed seconds drop or the turn expires, -1 while the clock is stopped
+    public long getNanosUntilNextChange() {
+        if (!running) {
+            return -1;
+        }
+        long remaining = getRemainingNanos(active);
+        if (remaining == 0) {
+            return 0;
+        }
+        long untilChange = remaining % NANOS_PER_SECOND;
+        return untilChange == 0 ? NANOS_PER_SECOND : untilChange;
+    }
+
+    private void chargeActive(long now) {
+        setRemaining(active, Math.max(getRemainingNanosAt(active, now), 0));
+        turnStartedAt = now;
+    }
+    private long getRemainingNanosAt(Square side, long now) {
+        long remaining = side == Square.BLUE ? blueRemaining : redRemaining;
+        return running && side == active ? remaining - (now - turnStartedAt) : remaining;
+    }
+    private void setRemaining(Square side, long nanos) {
+        if (side == Square.BLUE) {
+            blueRemaining = nanos;
+        } else {
+            redRemaining = nanos;
+        }
+    }
+}
@@ -0,0 +1,263 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+
+// Game on a BoardVariant board with the rules of GameEngine: the fox wins on reaching the top row,
+// the hounds when the fox has to move and can't, blocked hounds pass.
+//
+// A game always starts from the variant's start position, so the side that moved first and the
+// plies (MoveLog.PASS for a passed turn) are its whole history. Plies past the current one are
+// kept for redo until a new ply is played. Listeners get the same events as from GameEngine.
+public class VariantGame {
+
+    private BoardVariant variant;
+    private VariantPosition position;
+    private Square startTurn;
+    private Square turn;
+    private Square winner;
+    private int ply;
+    private int[] history;
+    private int historySize;
+    private int[] moveBuffer;
+    private ArrayList<GameEngineListener> listeners;
+
+    public VariantGame(BoardVariant variant) {
+        this.variant = variant;
+        position = VariantPosition.create(variant);
+        history = new int[64];
+        moveBuffer = new int[variant.getMaxMoves()];
+        listeners = new ArrayList<>();
+        newGame(Square.BLUE);
+    }
+
+    public void addListener(GameEngineListener listener) {
+        listeners.add(listener);
+    }
+    public void removeListener(GameEngineListener listener) {
+        listeners.remove(listener);
+    }
+
+    public void newGame(Square firstTurn) {
+        startTurn = firstTurn;
+        position.setStartPosition();
+        turn = firstTurn;
+        ply = 0;
+        historySize = 0;
+        winner = findWinner();
+        fireReset();
+    }
+
+    // replays the plies from the start, then steps back to the given ply; on an illegal ply the
+    // game keeps its previous state
+    public void loadGame(Square firstTurn, int[] moves, int count, int atPly) {
+        if (atPly < 0 || atPly > count) {
+            throw new IllegalArgumentException("Ply " + atPly + " outside 0.." + count);
+        }
+        VariantGame replay = new VariantGame(variant);
+        replay.newGame(firstTurn);
+        for (int i = 0; i < count; i++) {
+            if (moves[i] == MoveLog.PASS) {
+                if (replay.isGameOver()) {
+                    throw new IllegalArgumentException("Pass after the game ended at ply " + i);
+                }
+                replay.passTurn();
+            } else if (replay.isLegalMove(moves[i])) {
+                replay.applyMove(moves[i]);
+            } else {
+                throw new IllegalArgumentException("Illegal move " + moves[i] + " at ply " + i);
+            }
+        }
+        while (replay.ply > atPly) {
+            replay.undo();
+        }
+        loadGame(replay);
+    }
+
+    // takes over the position and history of another game on the same board, e.g. a loaded one
+    public void loadGame(VariantGame other) {
+        startTurn = other.startTurn;
+        position = other.position.copy();
+        turn = other.turn;
+        winner = other.winner;
+        ply = other.ply;
+        history = other.history.clone();
+        historySize = other.historySize;
+        fireReset();
+    }
+
+    // a snapshot with its own position and history, without the listeners
+    public VariantGame copy() {
+        VariantGame copy = new VariantGame(variant);
+        copy.loadGame(this);
+        return copy;
+    }
+
+    public BoardVariant getVariant() {
+        return variant;
+    }
+    public VariantPosition getPosition() {
+        return position;
+    }
+    public Square getStartTurn() {
+        return startTurn;
+    }
+    public Square getTurn() {
+        return turn;
+    }
+    public Square getWinner() {
+        return winner;
+    }
+    public boolean isGameOver() {
+        return winner != null;
+    }
+    public int getPly() {
+        return ply;
+    }
+    // plies played, including the ones that can be redone
+    public int getHistorySize() {
+        return historySize;
+    }
+    public int getMove(int index) {
+        return history[index];
+    }
+
+    // legal moves of the side to move, none once the game is over
+    public int generateMoves(int[] moves) {
+        if (isGameOver()) {
+            return 0;
+        }
+        return turn == Square.BLUE ? position.generateFoxMoves(moves) : position.generateHoundMoves(moves);
+    }
+    // legal moves of the piece on the given square, none if it does not belong to the side to move
+    public int generateMovesFrom(int square, int[] moves) {
+        if (square == -1 || position.squareAt(square) != turn) {
+            return 0;
+        }
+        int count = 0;
+        int all = generateMoves(moveBuffer);
+        for (int i = 0; i < all; i++) {
+            if (BitboardPosition.moveFrom(moveBuffer[i]) == square) {
+                moves[count++] = moveBuffer[i];
+            }
+        }
+        return count;
+    }
+    public boolean isLegalMove(int move) {
+        int count = generateMoves(moveBuffer);
+        for (int i = 0; i < count; i++) {
+            if (moveBuffer[i] == move) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public void applyMove(int move) {
+        if (!isLegalMove(move)) {
+            throw new IllegalArgumentException("Illegal move " + move + " for " + turn);
+        }
+        record(move);
+        playMove(move);
+    }
+
+    // side to move gives up its turn (time ran out, or the hounds are blocked)
+    public void passTurn() {
+        if (!isGameOver()) {
+            record(MoveLog.PASS);
+            switchTurn();
+        }
+    }
+
+    public boolean canUndo() {
+        return ply > 0;
+    }
+    public boolean canRedo() {
+        return ply < historySize;
+    }
+
+    public boolean undo() {
+        if (!canUndo()) {
+            return false;
+        }
+        int move = history[--ply];
+        Square mover = GameEngine.opponent(turn);
+        if (move != MoveLog.PASS) {
+            position.move(BitboardPosition.moveTo(move), BitboardPosition.moveFrom(move));
+            for (GameEngineListener listener : listeners) {
+                listener.pieceMoved(mover, BitboardPosition.moveTo(move), BitboardPosition.moveFrom(move));
+            }
+        }
+        turn = mover;
+        winner = findWinner();
+        fireTurnChanged();
+        return true;
+    }
+
+    public boolean redo() {
+        if (!canRedo()) {
+            return false;
+        }
+        int move = history[ply++];
+        if (move == MoveLog.PASS) {
+            switchTurn();
+        } else {
+            playMove(move);
+        }
+        return true;
+    }
+
+    // a new ply drops the ones that could have been redone
+    private void record(int move) {
+        if (ply == history.length) {
+            history = Arrays.copyOf(history, 2 * history.length);
+        }
+        history[ply++] = move;
+        historySize = ply;
+    }
+
+    private void playMove(int move) {
+        position.makeMove(move);
+        for (GameEngineListener listener : listeners) {
+            listener.pieceMoved(turn, BitboardPosition.moveFrom(move), BitboardPosition.moveTo(move));
+        }
+        switchTurn();
+    }
+
+    private void switchTurn() {
+        turn = GameEngine.opponent(turn);
+        winner = findWinner();
+        fireTurnChanged();
+        if (winner != null) {
+            for (GameEngineListener listener : listeners) {
+                listener.gameOver(winner);
+            }
+        }
+    }
+
+    private void fireReset() {
+        for (GameEngineListener listener : listeners) {
+            listener.positionReset();
+        }
+        fireTurnChanged();
+        if (winner != null) {
+            for (GameEngineListener listener : listeners) {
+                listener.gameOver(winner);
+            }
+        }
+    }
+
+    private void fireTurnChanged() {
+        for (GameEngineListener listener : listeners) {
+            listener.turnChanged(turn);
+        }
+    }
+
+    private Square findWinner() {
+        if (position.hasFoxReachedTop()) {
+            return Square.BLUE;
+        }
+        if (turn == Square.BLUE && position.isFoxTrapped()) {
+            return Square.RED;
+        }
+        return null;
+    }
+}
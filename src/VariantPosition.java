@@ -0,0 +1,155 @@
+// Position on a BoardVariant board, the fox square plus a set of hound squares.
+//
+// Boards of up to 64 dark squares keep the hounds in a single long and generate hound moves with
+// whole-board shifts like BitboardPosition. Larger boards use a multi-word bitset for occupancy and
+// step each hound through its neighbour table. Moves are packed like BitboardPosition.packMove.
+public abstract class VariantPosition implements SearchPosition {
+
+    protected BoardVariant variant;
+    // -1 without a fox
+    protected int foxSquare;
+
+    protected VariantPosition(BoardVariant variant) {
+        this.variant = variant;
+        foxSquare = -1;
+    }
+
+    // the representation is picked from the board size
+    public static VariantPosition create(BoardVariant variant) {
+        return variant.getSquareCount() <= 64 ? new LongVariantPosition(variant) : new MultiWordVariantPosition(variant);
+    }
+
+    @Override
+    public abstract VariantPosition copy();
+    public abstract void clear();
+    public abstract boolean isHound(int square);
+    public abstract int getHoundCount();
+    @Override
+    public abstract int generateHoundMoves(int[] moves);
+    // whether any hound stands on a row above the given one
+    public abstract boolean hasHoundAbove(int row);
+    protected abstract void addHound(int square);
+    protected abstract void removeHound(int square);
+
+    public BoardVariant getVariant() {
+        return variant;
+    }
+    @Override
+    public int getSquareCount() {
+        return variant.getSquareCount();
+    }
+    @Override
+    public int getMaxMoves() {
+        return variant.getMaxMoves();
+    }
+
+    public void setStartPosition() {
+        clear();
+        for (int i = 0; i < variant.getHoundCount(); i++) {
+            addHound(variant.getHoundStart(i));
+        }
+        foxSquare = variant.getFoxStart();
+    }
+
+    public int getFoxSquare() {
+        return foxSquare;
+    }
+    public void setFox(int square) {
+        foxSquare = square;
+    }
+    public void setHound(int square) {
+        if (!isHound(square)) {
+            addHound(square);
+        }
+    }
+
+    public Square squareAt(int square) {
+        if (square == foxSquare) {
+            return Square.BLUE;
+        }
+        return isHound(square) ? Square.RED : Square.EMPTY;
+    }
+    public boolean isEmpty(int square) {
+        return square != foxSquare && !isHound(square);
+    }
+
+    // generators write packed moves into the given buffer (at least getMaxMoves() long) and return their count
+    @Override
+    public int generateFoxMoves(int[] moves) {
+        if (foxSquare == -1) {
+            return 0;
+        }
+        int count = 0;
+        for (int to : variant.getAllSteps(foxSquare)) {
+            if (!isHound(to)) {
+                moves[count++] = BitboardPosition.packMove(foxSquare, to);
+            }
+        }
+        return count;
+    }
+    public int countFoxMoves() {
+        int count = 0;
+        for (int to : variant.getAllSteps(foxSquare)) {
+            if (!isHound(to)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public boolean isFoxTrapped() {
+        return foxSquare != -1 && countFoxMoves() == 0;
+    }
+    @Override
+    public boolean hasFoxReachedTop() {
+        return foxSquare != -1 && foxSquare < variant.getSquaresPerRow();
+    }
+
+    public void makeMove(int move) {
+        move(BitboardPosition.moveFrom(move), BitboardPosition.moveTo(move));
+    }
+    @Override
+    public void move(int from, int to) {
+        if (from == foxSquare) {
+            foxSquare = to;
+        } else {
+            removeHound(from);
+            addHound(to);
+        }
+    }
+
+    // cheaper than BitboardPosition's flood fill, which would cost a pass over every square here
+    @Override
+    public int evaluateForFox() {
+        int foxRow = variant.rowOf(foxSquare);
+        // hounds only move away from the top row, so once none is ahead the fox walks home
+        if (!hasHoundAbove(foxRow)) {
+            return FREE_FOX_SCORE - foxRow;
+        }
+        return -10 * foxRow + 4 * countFoxMoves();
+    }
+
+    @Override
+    public long hash(boolean foxToMove) {
+        long hash = foxToMove ? variant.getFoxToMoveKey() : 0;
+        if (foxSquare != -1) {
+            hash ^= variant.getFoxKey(foxSquare);
+        }
+        for (int square = 0; square < variant.getSquareCount(); square++) {
+            if (isHound(square)) {
+                hash ^= variant.getHoundKey(square);
+            }
+        }
+        return hash;
+    }
+    @Override
+    public long moveKey(boolean foxMove, int from, int to) {
+        return foxMove ? variant.getFoxKey(from) ^ variant.getFoxKey(to) ^ variant.getFoxToMoveKey()
+                : variant.getHoundKey(from) ^ variant.getHoundKey(to) ^ variant.getFoxToMoveKey();
+    }
+    @Override
+    public long passKey() {
+        return variant.getFoxToMoveKey();
+    }
+}
@@ -0,0 +1,40 @@
+import java.util.Random;
+
+public class Zobrist {
+
+    // fixed seed so hashes stay the same between runs
+    private static final long SEED = 0x5DEECE66DL;
+
+    private static final long[] FOX_KEYS = new long[BitboardPosition.SQUARE_COUNT];
+    private static final long[] HOUND_KEYS = new long[BitboardPosition.SQUARE_COUNT];
+    public static final long FOX_TO_MOVE_KEY;
+
+    static {
+        Random random = new Random(SEED);
+        for (int square = 0; square < BitboardPosition.SQUARE_COUNT; square++) {
+            FOX_KEYS[square] = random.nextLong();
+            HOUND_KEYS[square] = random.nextLong();
+        }
+        FOX_TO_MOVE_KEY = random.nextLong();
+    }
+
+    public static long hash(BitboardPosition position, Square turn) {
+        long hash = turn == Square.BLUE ? FOX_TO_MOVE_KEY : 0;
+        int foxSquare = position.getFoxSquare();
+        if (foxSquare != -1) {
+            hash ^= FOX_KEYS[foxSquare];
+        }
+        int hounds = position.getHounds();
+        while (hounds != 0) {
+            hash ^= HOUND_KEYS[Integer.numberOfTrailingZeros(hounds)];
+            hounds &= hounds - 1;
+        }
+        return hash;
+    }
+
+    // hash change caused by moving a piece, the side to move changes as well
+    public static long moveKey(boolean foxMove, int from, int to) {
+        long[] keys = foxMove ? FOX_KEYS : HOUND_KEYS;
+        return keys[from] ^ keys[to] ^ FOX_TO_MOVE_KEY;
+    }
+}